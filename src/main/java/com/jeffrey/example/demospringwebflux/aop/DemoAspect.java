@@ -1,9 +1,12 @@
 package com.jeffrey.example.demospringwebflux.aop;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.jeffrey.example.demospringwebflux.config.DemoMessageConverterConfig;
 import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
 import com.jeffrey.example.demospringwebflux.service.DemoRxService;
 import com.jeffrey.example.demospringwebflux.service.DemoService;
+import com.jeffrey.example.demospringwebflux.util.DemoMessageHeaders;
 import com.jeffrey.example.demospringwebflux.util.MonoResultWrapper;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -15,9 +18,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.integration.channel.AbstractMessageChannel;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.util.Assert;
+import org.springframework.util.MimeType;
 import reactor.core.publisher.Mono;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
 
 /**
  * [IMPORTANT] this aspect should only be used for blocking channel
@@ -41,6 +48,17 @@ public class DemoAspect {
     @Autowired
     DemoRxService demoRxService;
 
+    // ObjectReader is immutable and thread-safe, resolve the deserializer once instead of on every send
+    private ObjectReader demoEntityReader;
+    private ObjectReader cborDemoEntityReader;
+    private ObjectReader smileDemoEntityReader;
+
+    @PostConstruct
+    public void init() {
+        this.demoEntityReader = this.jsonMapper.readerFor(DemoEntity.class);
+        this.cborDemoEntityReader = DemoMessageConverterConfig.cborObjectMapper().readerFor(DemoEntity.class);
+        this.smileDemoEntityReader = DemoMessageConverterConfig.smileObjectMapper().readerFor(DemoEntity.class);
+    }
 
 //    @Deprecated
 //    @SuppressWarnings("unused")
@@ -97,15 +115,22 @@ public class DemoAspect {
         Assert.notNull(args[0], "argument value cannot be null for MessageChannel.send(Message<?> message)");
         Assert.isTrue(args[0] instanceof org.springframework.messaging.Message<?>, "argument must be of type org.springframework.messaging.Message<?>");
         Assert.notNull(((Message<?>)args[0]).getPayload(), "message payload cannot be null");
-        Assert.isTrue(((Message<?>)args[0]).getPayload() instanceof byte[], "message payload should be byte[] array");
+        Assert.isTrue(
+                ((Message<?>)args[0]).getPayload() instanceof byte[] || ((Message<?>)args[0]).getPayload() instanceof DemoEntity,
+                "message payload should be byte[] array or DemoEntity");
 
         // payload conversion to entity before saving to DB
         Message<?> message = (Message<?>) args[0];
-        byte [] bytes = (byte[])message.getPayload();
-        String jsonString = new String(bytes);
-        DemoEntity demoEntity = this.jsonMapper.readValue(jsonString, DemoEntity.class);
 
-        LOGGER.debug("saving entity to DB: {}", jsonString);
+        if (message.getHeaders().containsKey(DemoMessageHeaders.OUTBOX_ID)) {
+            // message relayed from the outbox, the entity has already been written to DB
+            LOGGER.debug("intercept supplier - relayed from outbox: {}", message.getHeaders().get(DemoMessageHeaders.OUTBOX_ID));
+            return proceedingJoinPoint.proceed();
+        }
+
+        DemoEntity demoEntity = decodePayload(message);
+
+        LOGGER.debug("saving entity to DB: {}", demoEntity);
 
         // this will create a blocking behavior which defeats the rationale of reactive programming
         // thus facilitate guarantee of atomic behavior for write DB and send message to broker
@@ -123,6 +148,34 @@ public class DemoAspect {
         return resultWrapper.getResult();
     }
 
+    /**
+     * Parse the payload bytes directly in the format of the contentType header (for JSON
+     * the parser detects the UTF encoding itself), or skip the decode if the message
+     * already carries the typed entity
+     */
+    private DemoEntity decodePayload(Message<?> message) throws IOException {
+        Object payload = message.getPayload();
+        if (payload instanceof DemoEntity) {
+            return (DemoEntity) payload;
+        }
+        return readerFor(message.getHeaders().get(MessageHeaders.CONTENT_TYPE)).readValue((byte[]) payload);
+    }
+
+    private ObjectReader readerFor(Object contentType) {
+        if (contentType == null) {
+            return this.demoEntityReader;
+        }
+        MimeType mimeType = contentType instanceof MimeType ?
+                (MimeType) contentType : MimeType.valueOf(contentType.toString());
+        if (DemoMessageConverterConfig.APPLICATION_CBOR.equalsTypeAndSubtype(mimeType)) {
+            return this.cborDemoEntityReader;
+        }
+        if (DemoMessageConverterConfig.APPLICATION_SMILE.equalsTypeAndSubtype(mimeType)) {
+            return this.smileDemoEntityReader;
+        }
+        return this.demoEntityReader;
+    }
+
     private Mono<Boolean> writeEntity(
             DemoEntity demoEntity,
             MonoResultWrapper resultWrapper)
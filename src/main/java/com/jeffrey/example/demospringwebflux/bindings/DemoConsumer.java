@@ -1,20 +1,87 @@
 package com.jeffrey.example.demospringwebflux.bindings;
 
 import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import com.jeffrey.example.demospringwebflux.service.DemoEntityCache;
+import com.jeffrey.example.demospringwebflux.service.DemoRxService;
+import com.jeffrey.example.demospringwebflux.util.DemoByteTransforms;
+import com.jeffrey.example.demospringwebflux.util.DemoDuplicateFilter;
+import com.jeffrey.example.demospringwebflux.util.DemoKeyedLanes;
+import com.jeffrey.example.demospringwebflux.util.DemoMessageHeaders;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+import org.springframework.cloud.stream.binder.rabbit.properties.RabbitConsumerProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import javax.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
 public class DemoConsumer {
     private static final Logger LOGGER = LoggerFactory.getLogger(DemoConsumer.class);
 
+    @Autowired
+    DemoEntityCache demoEntityCache;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    DemoRxService demoRxService;
+
+    @Autowired
+    DemoDuplicateFilter duplicateFilter;
+
+    @Autowired
+    Environment environment;
+
+    @Value("${demo.consumer.batch.enabled:false}")
+    boolean batchEnabled;
+
+    @Value("${demo.consumer.batch.size:500}")
+    int batchSize;
+
+    @Value("${demo.consumer.batch.timeout-ms:100}")
+    long batchTimeoutMs;
+
+    @Value("${demo.consumer.lanes.count:0}")
+    int laneCount;
+
+    @Value("${demo.consumer.lanes.key-header:}")
+    String laneKeyHeader;
+
+    // lanes created by the consumer beans, their schedulers are disposed with the consumer
+    final Disposable.Composite keyedLanes = Disposables.composite();
+
     /**
      * Reactive Consumer with a Function<Flux<?>, Mono<Void>> return type, instructing
      * SCSt framework with no reference to subscribe to (no output), invoking then
@@ -43,15 +110,79 @@ public class DemoConsumer {
 //            }
 //        };
 
-        return flux -> flux.map(_message -> {
+        Timer latencyTimer = bindingLatencyTimer("consumerRx0-in-0");
+
+        if (batchEnabled) {
+            verifyManualAcknowledgement("consumerRx0-in-0");
+
+            DistributionSummary batchSizeSummary = DistributionSummary.builder("demo.consumer.batch.size")
+                    .description("number of messages persisted by one bulk write")
+                    .tag("binding", "consumerRx0-in-0")
+                    .register(meterRegistry);
+
+            // a window is closed when it reaches the batch size or when the timeout elapsed
+            // since its first message, batches are persisted one after another so that the
+            // acknowledgements are issued in delivery order
+            // duplicates are dropped from the write but kept in the batch to be acknowledged
+            return flux -> flux
+                    .doOnNext(_message -> recordLatency(latencyTimer, _message))
+                    .bufferTimeout(batchSize, Duration.ofMillis(batchTimeoutMs))
+                    .concatMap(batch -> {
+                        batchSizeSummary.record(batch.size());
+                        return persistBatch(batch);
+                    })
+                    .subscribe(); // remember to subscribe to the incoming flux when using Consumer
+        }
+
+        if (laneCount > 0) {
+            // messages of the same entity (or key header) stay in order on the same lane
+            DemoKeyedLanes<Message<DemoEntity>> lanes = new DemoKeyedLanes<>("consumerRx0", laneCount, this::laneKey);
+            lanes.bindTo(meterRegistry);
+            keyedLanes.add(lanes);
+            return flux -> lanes.process(flux.filter(this::isFirstDelivery), _message -> receiveRx0(latencyTimer, _message))
+                    .subscribe(); // remember to subscribe to the incoming flux when using Consumer
+        }
+
+        return flux -> flux.filter(this::isFirstDelivery)
+                .map(_message -> receiveRx0(latencyTimer, _message))
+                .subscribe(); // remember to subscribe to the incoming flux when using Consumer
+    }
+
+    private Message<DemoEntity> receiveRx0(Timer latencyTimer, Message<DemoEntity> message) {
+        recordLatency(latencyTimer, message);
+        DemoEntity demoEntity = message.getPayload();
+        LOGGER.debug("rx0 - receiving entity: {}", demoEntity.toString());
+        return message;
+    }
+
+    /**
+     * Keep the read-through cache of every node coherent with the changes published on the
+     * rx0 destination. Bound without a consumer group (an anonymous queue per node) unlike
+     * consumerRx0, so every node receives every change, not only the node consuming it.
+     * Invalidation is idempotent, hence no duplicate filtering.
+     */
+    @Bean
+    public Consumer<Flux<Message<DemoEntity>>> cacheInvalidationRx0() {
+        return flux -> flux.doOnNext(_message -> {
             DemoEntity demoEntity = _message.getPayload();
-            LOGGER.debug("rx0 - receiving entity: {}", demoEntity.toString());
-            return _message;
+            LOGGER.debug("rx0 - invalidating cached entity: {}", demoEntity.getId());
+            demoEntityCache.invalidate(demoEntity.getId());
         }).subscribe(); // remember to subscribe to the incoming flux when using Consumer
     }
 
     @Bean
     public Consumer<Flux<String>> consumerRx1() {
+        if (laneCount > 0) {
+            // the value itself is the key, equal values stay in order on the same lane
+            DemoKeyedLanes<String> lanes = new DemoKeyedLanes<>("consumerRx1", laneCount, Function.identity());
+            lanes.bindTo(meterRegistry);
+            keyedLanes.add(lanes);
+            return flux -> lanes.process(flux, value -> {
+                LOGGER.debug("rx1 - receiving: {}", value);
+                return value;
+            }).subscribe(); // remember to subscribe to the incoming flux when using Consumer
+        }
+
         return flux -> flux.doOnNext(value -> {
             LOGGER.debug("rx1 - receiving: {}", value);
         }).subscribe(); // remember to subscribe to the incoming flux when using Consumer
@@ -69,6 +200,19 @@ public class DemoConsumer {
         });
     }
 
+    /**
+     * Fused equivalent of the composed definition unwrapDoubleQuotes|consumerRx2, the raw
+     * payload is unwrapped at the byte level and only decoded into a String for logging
+     */
+    @Bean
+    public Consumer<Flux<byte[]>> unwrapDoubleQuotesConsumerRx2() {
+        return flux -> flux.map(DemoByteTransforms::unwrapDoubleQuotes).doOnNext(value -> {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("rx2 - receiving: {}", new String(value, StandardCharsets.UTF_8));
+            }
+        }).subscribe(); // remember to subscribe to the incoming flux when using Consumer
+    }
+
     @Bean
     public Consumer<String> consumer0() {
         return value -> { LOGGER.debug("consumer0 - receiving: {}", value); };
@@ -90,7 +234,162 @@ public class DemoConsumer {
     @Bean
     public Consumer<Message<DemoEntity>> consumer2() {
         return message -> {
+            if (!isFirstDelivery(message)) {
+                return;
+            }
             LOGGER.debug("consumer2 - receiving: {}", message.toString());
         };
     }
+
+    @PreDestroy
+    protected void disposeLanes() {
+        keyedLanes.dispose();
+    }
+
+    private boolean isFirstDelivery(Message<DemoEntity> message) {
+        if (duplicateFilter.markFirstSeen(dedupKey(message))) {
+            return true;
+        }
+        LOGGER.debug("dropping duplicate message: {}", message.getHeaders());
+        return false;
+    }
+
+    /**
+     * Identity of the message across redeliveries, the AMQP message id stamped by the producer
+     * (see DemoMessageHeaders.newMessageId). Messages without one are never filtered, the entity
+     * id is not an identity of the message since the same entity may legitimately be sent again
+     */
+    private static String dedupKey(Message<DemoEntity> message) {
+        return message.getHeaders().get(AmqpHeaders.MESSAGE_ID, String.class);
+    }
+
+    /**
+     * Key of the message for the lanes, the configured header if any, otherwise the entity id
+     */
+    private Object laneKey(Message<DemoEntity> message) {
+        if (laneKeyHeader != null && !laneKeyHeader.isEmpty()) {
+            return message.getHeaders().get(laneKeyHeader);
+        }
+        return message.getPayload().getId();
+    }
+
+    /**
+     * Persist the batch with one bulk write (which also invalidates the cached entities),
+     * the messages are acknowledged only once the write is committed, or rejected to the
+     * dead letter queue if the write failed
+     */
+    private Mono<Void> persistBatch(List<Message<DemoEntity>> batch) {
+        // copies of the same message within the batch are written once as well
+        Set<String> batchKeys = new HashSet<>();
+        List<Message<DemoEntity>> firstDeliveries = batch.stream()
+                .filter(_message -> {
+                    String key = dedupKey(_message);
+                    return !duplicateFilter.isDuplicate(key) && (key == null || batchKeys.add(key));
+                })
+                .collect(Collectors.toList());
+        List<DemoEntity> demoEntities = firstDeliveries.stream()
+                .map(Message::getPayload)
+                .collect(Collectors.toList());
+
+        return demoRxService.upsertDemoEntities(demoEntities)
+                .then(Mono.fromRunnable(() -> {
+                    LOGGER.debug("rx0 - persisted batch of {} entities", demoEntities.size());
+                    // only remembered once written, a redelivery of a failed batch must be written again
+                    firstDeliveries.forEach(_message -> duplicateFilter.markSeen(dedupKey(_message)));
+                    acknowledge(batch, true);
+                }))
+                .onErrorResume(throwable -> {
+                    LOGGER.error("rx0 - failed to persist batch of {} entities: {}", batch.size(), throwable.getMessage());
+                    acknowledge(batch, false);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Batches are acknowledged by the consumer once written, with the default acknowledgeMode
+     * AUTO the container would already have acknowledged every message on delivery and a
+     * failed write would be lost, hence refuse to start (see the batch profile in application.yml)
+     *
+     * As the binder does, the properties of the binding override the default consumer properties
+     */
+    private void verifyManualAcknowledgement(String bindingName) {
+        Binder binder = Binder.get(environment);
+        RabbitConsumerProperties consumerProperties = binder
+                .bind("spring.cloud.stream.rabbit.default.consumer", RabbitConsumerProperties.class)
+                .orElseGet(RabbitConsumerProperties::new);
+        // adapted rather than parsed, binding names are not in the canonical form (e.g. consumerRx0-in-0)
+        binder.bind(
+                ConfigurationPropertyName.adapt("spring.cloud.stream.rabbit.bindings." + bindingName + ".consumer", '.'),
+                Bindable.ofInstance(consumerProperties));
+
+        if (consumerProperties.getAcknowledgeMode() != AcknowledgeMode.MANUAL) {
+            throw new IllegalStateException(String.format(
+                    "demo.consumer.batch.enabled requires acknowledgeMode MANUAL on the rabbit binding %s, found %s",
+                    bindingName, consumerProperties.getAcknowledgeMode()));
+        }
+        if (!consumerProperties.isAutoBindDlq()) {
+            LOGGER.warn("rx0 - no dead letter queue bound to {}, the messages of a failed batch will be dropped", bindingName);
+        }
+    }
+
+    /**
+     * Acknowledge (or reject) the batch with a single basicAck/basicNack per channel,
+     * covering every delivery up to the highest delivery tag of the batch.
+     *
+     * The channel and delivery tag headers are only present when the binding consumes
+     * with acknowledgeMode MANUAL, otherwise the container already acknowledged them.
+     * A rejected batch is not requeued, it is routed to the dead letter queue of the binding
+     * (autoBindDlq) instead of being redelivered in a loop.
+     */
+    private static void acknowledge(List<? extends Message<?>> batch, boolean success) {
+        Map<Channel, Long> lastDeliveryTags = new IdentityHashMap<>();
+        for (Message<?> message:batch) {
+            Channel channel = message.getHeaders().get(AmqpHeaders.CHANNEL, Channel.class);
+            Long deliveryTag = message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+            if (channel != null && deliveryTag != null) {
+                lastDeliveryTags.merge(channel, deliveryTag, Math::max);
+            }
+        }
+
+        for (Map.Entry<Channel, Long> entry:lastDeliveryTags.entrySet()) {
+            try {
+                if (success) {
+                    entry.getKey().basicAck(entry.getValue(), true);
+                } else {
+                    entry.getKey().basicNack(entry.getValue(), true, false);
+                }
+            } catch (IOException e) {
+                LOGGER.error("rx0 - failed to {} delivery tag {}: {}", success ? "ack" : "nack", entry.getValue(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Publish-to-consume latency of the messages received on the binding,
+     * with p50/p99/p999 and a percentile histogram for aggregation across nodes
+     */
+    private Timer bindingLatencyTimer(String bindingName) {
+        return Timer.builder("demo.binding.latency")
+                .description("latency from the emit timestamp stamped by the supplier until the message is consumed")
+                .tag("binding", bindingName)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
+
+    private static void recordLatency(Timer latencyTimer, Message<?> message) {
+        Long emitTimestamp = message.getHeaders().get(DemoMessageHeaders.EMIT_TIMESTAMP, Long.class);
+        if (emitTimestamp == null) {
+            return;
+        }
+        long latencyMicros = DemoMessageHeaders.currentTimeMicros() - emitTimestamp;
+        // ignore negative latency caused by clock skew between nodes
+        if (latencyMicros >= 0) {
+            latencyTimer.record(latencyMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
 }
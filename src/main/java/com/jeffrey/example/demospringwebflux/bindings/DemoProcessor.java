@@ -1,5 +1,6 @@
 package com.jeffrey.example.demospringwebflux.bindings;
 
+import com.jeffrey.example.demospringwebflux.util.DemoByteTransforms;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
@@ -15,7 +16,7 @@ public class DemoProcessor {
     @Bean
     public Function<Flux<String>, Flux<String>> wrapDoubleQuotes() {
         return flux -> flux.map(value -> {
-            String transformedValue = String.format("\"%s\"", value);
+            String transformedValue = DemoByteTransforms.wrapDoubleQuotes(value);
             LOGGER.debug("Transformed - wrapDoubleQuotes: {}", transformedValue);
             return transformedValue;
         });
@@ -24,12 +25,30 @@ public class DemoProcessor {
     @Bean
     public Function<Flux<String>, Flux<String>> unwrapDoubleQuotes() {
         return flux -> flux.map(value -> {
-            String transformedValue = value.replaceAll("\"", "");
+            String transformedValue = DemoByteTransforms.unwrapDoubleQuotes(value);
             LOGGER.debug("Transformed - unwrapDoubleQuotes: {}", transformedValue);
             return transformedValue;
         });
     }
 
+    /**
+     * Byte level variant of wrapDoubleQuotes, operates on the raw payload
+     * without decoding it into a String
+     */
+    @Bean
+    public Function<Flux<byte[]>, Flux<byte[]>> wrapDoubleQuotesBytes() {
+        return flux -> flux.map(DemoByteTransforms::wrapDoubleQuotes);
+    }
+
+    /**
+     * Byte level variant of unwrapDoubleQuotes, operates on the raw payload
+     * without decoding it into a String
+     */
+    @Bean
+    public Function<Flux<byte[]>, Flux<byte[]>> unwrapDoubleQuotesBytes() {
+        return flux -> flux.map(DemoByteTransforms::unwrapDoubleQuotes);
+    }
+
     @Bean
     public Function<String, String> toUpperCase() {
         return value -> {
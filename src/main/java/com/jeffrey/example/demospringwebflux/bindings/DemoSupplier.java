@@ -3,8 +3,13 @@ package com.jeffrey.example.demospringwebflux.bindings;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
 import com.jeffrey.example.demospringwebflux.service.DemoRxService;
+import com.jeffrey.example.demospringwebflux.util.DemoByteTransforms;
+import com.jeffrey.example.demospringwebflux.util.DemoIngestSink;
+import com.jeffrey.example.demospringwebflux.util.DemoLoadGenerator;
+import com.jeffrey.example.demospringwebflux.util.DemoMessageHeaders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -13,12 +18,11 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
-import reactor.core.publisher.EmitterProcessor;
 import reactor.core.publisher.Flux;
 import reactor.core.scheduler.Schedulers;
 
+import java.nio.charset.StandardCharsets;
 import java.util.function.Supplier;
-import java.util.stream.Stream;
 
 @Component
 public class DemoSupplier {
@@ -34,8 +38,11 @@ public class DemoSupplier {
     private BeanFactory beanFactory;
 
     @Autowired
-    @Qualifier("demoEntityEmitProcessor")
-    EmitterProcessor<DemoEntity> demoEntityEmitterProcessor;
+    @Qualifier("demoEntityIngestSink")
+    DemoIngestSink<DemoEntity> demoEntityIngestSink;
+
+    @Autowired
+    DemoLoadGenerator demoLoadGenerator;
 
     /**
      * Produces (supplies) the continuous stream of messages and not an individual message.
@@ -44,10 +51,13 @@ public class DemoSupplier {
     @Bean
     public Supplier<Flux<Message<DemoEntity>>> supplierRx0() {
         return () -> {
-            return demoEntityEmitterProcessor.doOnNext(_demoEntity -> {
+            return demoEntityIngestSink.asFlux().doOnNext(_demoEntity -> {
                 LOGGER.debug("rx0 - emitting entity: {}", _demoEntity.toString());
             }).map(_demoEntity -> {
-                Message<DemoEntity> message = MessageBuilder.withPayload(_demoEntity).build();
+                Message<DemoEntity> message = MessageBuilder.withPayload(_demoEntity)
+                        .setHeader(AmqpHeaders.MESSAGE_ID, DemoMessageHeaders.newMessageId())
+                        .setHeader(DemoMessageHeaders.EMIT_TIMESTAMP, DemoMessageHeaders.currentTimeMicros())
+                        .build();
                 LOGGER.debug("sending message - headers: {}", message.getHeaders().toString());
                 LOGGER.debug("sending message - payload: {}", message.getPayload().toString());
                 return message;
@@ -56,22 +66,18 @@ public class DemoSupplier {
     }
 
     /**
-     * Produces (supplies) a continuous stream of data (one message every 5 seconds)
+     * Produces (supplies) a continuous stream of data at the rate of the load generator
+     * (one message every 5 seconds by default), driven by a timer instead of a sleeping thread.
      * Since the supplier function emits continuous stream of data, the poller would
      * trigger it only once
+     *
+     * The rate, payload size and burst size can be changed at runtime with /actuator/demoLoadGenerator
      */
     @Bean
     public Supplier<Flux<String>> supplierRx1() {
-        return () -> Flux.fromStream(Stream.generate(() -> {
-            try {
-                Thread.sleep(5000);
-                LOGGER.debug("rx1 - emitting: {}", "Hello from reactive Supplier");
-                return "Hello from reactive Supplier";
-            } catch (Exception e) {
-                // ignore
-                return null;
-            }
-        })).subscribeOn(Schedulers.elastic()).share();
+        return () -> demoLoadGenerator.asFlux()
+                .doOnNext(value -> LOGGER.debug("rx1 - emitting: {}", value))
+                .share();
     }
 
     /**
@@ -88,6 +94,24 @@ public class DemoSupplier {
                 .subscribeOn(Schedulers.elastic()).share();
     }
 
+    /**
+     * Fused equivalent of the composed definition supplierRx2|wrapDoubleQuotes, the payloads
+     * are encoded and wrapped once, then the same arrays are emitted on every poll without
+     * any per-message transform or intermediate String.
+     *
+     * See spring.cloud.stream.poller.fixed-delay
+     */
+    @PollableBean
+    public Supplier<Flux<byte[]>> supplierRx2WrapDoubleQuotes() {
+        byte[][] payloads = new byte[][] {
+                DemoByteTransforms.wrapDoubleQuotes("hello from reactive supplier".getBytes(StandardCharsets.UTF_8)),
+                DemoByteTransforms.wrapDoubleQuotes("bye reactive supplier".getBytes(StandardCharsets.UTF_8))
+        };
+        return () -> Flux.fromArray(payloads)
+                .doOnNext(value -> LOGGER.debug("rx2 - emitting {} bytes", value.length))
+                .subscribeOn(Schedulers.elastic()).share();
+    }
+
     /**
      * Produce a single message in a fix period (default 1000ms) and each message is sent to a destination that
      * is exposed by the binder.
@@ -131,7 +155,9 @@ public class DemoSupplier {
     public Supplier<Message<DemoEntity>> supplier2() {
         return () -> {
             DemoEntity demoEntity = new DemoEntity("Hello from supplier 2");
-            Message<DemoEntity> message = MessageBuilder.withPayload(demoEntity).build();
+            Message<DemoEntity> message = MessageBuilder.withPayload(demoEntity)
+                    .setHeader(AmqpHeaders.MESSAGE_ID, DemoMessageHeaders.newMessageId())
+                    .build();
             LOGGER.debug("supplier0 - emitting: {}", message.toString());
             return message;
         };
@@ -1,16 +1,29 @@
 package com.jeffrey.example.demospringwebflux.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jeffrey.example.demospringwebflux.aop.DemoAspect;
 import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import com.jeffrey.example.demospringwebflux.service.DemoEntityCache;
+import com.jeffrey.example.demospringwebflux.util.DemoBlockingExecutor;
+import com.jeffrey.example.demospringwebflux.util.DemoDuplicateFilter;
+import com.jeffrey.example.demospringwebflux.util.DemoIngestSink;
+import com.jeffrey.example.demospringwebflux.util.DemoLoadGenerator;
+import com.jeffrey.example.demospringwebflux.util.DemoPartialEntityWriter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.codec.CodecCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.core.annotation.Order;
 import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerResponse;
-import reactor.core.publisher.EmitterProcessor;
+
+import java.time.Duration;
+import java.util.Arrays;
 
 import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
@@ -30,6 +43,12 @@ import static org.springframework.web.reactive.function.server.ServerResponse.ok
 @Configuration
 public class DemoConfig {
 
+    /**
+     * Newline delimited JSON, not yet provided by {@link MediaType} in this version of spring
+     */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
     @Bean
     public RouterFunction<ServerResponse> htmlRouter(@Value("classpath:/static/index.html") Resource html) {
         return route(GET("/"), request
@@ -37,9 +56,97 @@ public class DemoConfig {
         );
     }
 
-    @Bean(name = "demoEntityEmitProcessor")
-    public EmitterProcessor<DemoEntity> demoEntityEmitProcessor() {
-        return EmitterProcessor.create();
+    /**
+     * Register application/x-ndjson with the Jackson codecs so that a request body
+     * can be decoded as a stream of entities (one JSON document per line) and the
+     * response can be encoded per element instead of collecting into a JSON array.
+     *
+     * Ordered after the default Jackson codec customizer of spring boot.
+     */
+    @Bean
+    @Order(1)
+    public CodecCustomizer ndjsonCodecCustomizer(ObjectMapper jsonMapper) {
+        return configurer -> {
+            MediaType[] mimeTypes = new MediaType[] {
+                    MediaType.APPLICATION_JSON,
+                    new MediaType("application", "*+json"),
+                    APPLICATION_NDJSON
+            };
+            Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(jsonMapper, mimeTypes);
+            encoder.setStreamingMediaTypes(Arrays.asList(MediaType.APPLICATION_STREAM_JSON, APPLICATION_NDJSON));
+
+            configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(jsonMapper, mimeTypes));
+            configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+        };
+    }
+
+    /**
+     * Entities posted to the reactive controller are emitted to supplierRx0 through this sink,
+     * which is safe for concurrent producers and bounded by the capacity
+     */
+    @Bean(name = "demoEntityIngestSink")
+    public DemoIngestSink<DemoEntity> demoEntityIngestSink(
+            @Value("${demo.ingest.capacity:1024}") int capacity,
+            @Value("${demo.ingest.overflow-policy:REJECT}") DemoIngestSink.OverflowPolicy overflowPolicy,
+            @Value("${demo.ingest.block-timeout-ms:100}") long blockTimeoutMs)
+    {
+        return new DemoIngestSink<>("demoEntity", capacity, overflowPolicy, Duration.ofMillis(blockTimeoutMs));
+    }
+
+    /**
+     * Read-through cache in front of readDemoEntityById of both services,
+     * the cache metrics are bound to the registry by spring boot
+     */
+    @Bean
+    public DemoEntityCache demoEntityCache(
+            @Value("${demo.cache.maximum-size:10000}") long maximumSize,
+            @Value("${demo.cache.expire-after-write-seconds:60}") long expireAfterWriteSeconds)
+    {
+        return new DemoEntityCache(maximumSize, expireAfterWriteSeconds);
+    }
+
+    /**
+     * Partial entities of the fields parameter of both controllers
+     */
+    @Bean
+    public DemoPartialEntityWriter demoPartialEntityWriter(ObjectMapper jsonMapper) {
+        return new DemoPartialEntityWriter(jsonMapper);
+    }
+
+    /**
+     * Blocking DemoService calls of DemoController, in the caller thread (DIRECT), through
+     * a bounded pool answering 503 when saturated (BULKHEAD) or each on its own virtual
+     * thread (VIRTUAL, JDK 21+ only, the startup fails otherwise)
+     */
+    @Bean(destroyMethod = "dispose")
+    public DemoBlockingExecutor demoBlockingExecutor(
+            @Value("${demo.blocking.mode:DIRECT}") DemoBlockingExecutor.Mode mode,
+            @Value("${demo.blocking.pool-size:16}") int poolSize,
+            @Value("${demo.blocking.queue-capacity:64}") int queueCapacity)
+    {
+        return new DemoBlockingExecutor("demoService", mode, poolSize, queueCapacity);
+    }
+
+    /**
+     * Recently consumed message keys of consumerRx0 and consumer2, to drop broker redeliveries
+     */
+    @Bean
+    public DemoDuplicateFilter consumerDuplicateFilter(@Value("${demo.consumer.dedup.capacity:100000}") int capacity) {
+        return new DemoDuplicateFilter("consumer", capacity);
+    }
+
+    /**
+     * Synthetic messages of supplierRx1, for driving the bindings at a known rate
+     */
+    @Bean
+    public DemoLoadGenerator demoLoadGenerator(
+            @Value("${demo.generator.rate-per-second:0.2}") double ratePerSecond,
+            @Value("${demo.generator.payload-size:0}") int payloadSize,
+            @Value("${demo.generator.burst-size:1}") int burstSize,
+            @Value("${demo.generator.tick-ms:10}") long tickMs)
+    {
+        return new DemoLoadGenerator("supplierRx1", "Hello from reactive Supplier",
+                Duration.ofMillis(tickMs), ratePerSecond, payloadSize, burstSize);
     }
 
     /**
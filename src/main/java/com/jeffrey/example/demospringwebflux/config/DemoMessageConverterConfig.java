@@ -0,0 +1,57 @@
+package com.jeffrey.example.demospringwebflux.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.util.MimeType;
+
+/**
+ * Binary message converters for the bindings, any {@link MessageConverter} bean
+ * is added by spring-cloud-stream to the converters it selects from by the
+ * contentType of the binding, e.g.
+ *
+ * spring.cloud.stream.bindings.supplierRx0-out-0.contentType=application/cbor
+ *
+ * The consumer side selects the converter from the contentType header of the
+ * message, so producers can be switched without reconfiguring the consumers.
+ */
+@Configuration
+public class DemoMessageConverterConfig {
+
+    public static final MimeType APPLICATION_CBOR = MimeType.valueOf("application/cbor");
+    public static final MimeType APPLICATION_SMILE = MimeType.valueOf("application/x-jackson-smile");
+
+    @Bean
+    public MessageConverter cborMessageConverter() {
+        return jacksonMessageConverter(cborObjectMapper(), APPLICATION_CBOR);
+    }
+
+    @Bean
+    public MessageConverter smileMessageConverter() {
+        return jacksonMessageConverter(smileObjectMapper(), APPLICATION_SMILE);
+    }
+
+    /**
+     * Not exposed as beans, an ObjectMapper bean would replace the JSON one
+     * auto-configured by spring boot
+     */
+    public static ObjectMapper cborObjectMapper() {
+        return Jackson2ObjectMapperBuilder.cbor().build();
+    }
+
+    public static ObjectMapper smileObjectMapper() {
+        return Jackson2ObjectMapperBuilder.smile().build();
+    }
+
+    private static MessageConverter jacksonMessageConverter(ObjectMapper objectMapper, MimeType mimeType) {
+        MappingJackson2MessageConverter messageConverter = new MappingJackson2MessageConverter(mimeType);
+        messageConverter.setObjectMapper(objectMapper);
+        // only convert messages declaring this content type, never the ones without a contentType header
+        messageConverter.setStrictContentTypeMatch(true);
+        return messageConverter;
+    }
+
+}
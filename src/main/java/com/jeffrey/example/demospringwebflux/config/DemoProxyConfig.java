@@ -1,56 +1,74 @@
 package com.jeffrey.example.demospringwebflux.config;
 
 import com.jeffrey.example.demospringwebflux.util.DemoConsumerAdviceInvocator;
+import com.jeffrey.example.demospringwebflux.util.DemoConsumerHooks;
 import org.aopalliance.aop.Advice;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.aop.framework.ReflectiveMethodInvocation;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.TargetSource;
 import org.springframework.aop.framework.autoproxy.BeanNameAutoProxyCreator;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.util.Assert;
 import reactor.core.publisher.Flux;
 
+import java.lang.reflect.Method;
 import java.util.function.Consumer;
 
 @Configuration
 public class DemoProxyConfig {
     private static final Logger LOGGER = LoggerFactory.getLogger(DemoProxyConfig.class);
 
+    private static final Pointcut ACCEPT_POINTCUT = new StaticMethodMatcherPointcut() {
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            return method.getName().equals("accept") && method.getParameterCount() == 1;
+        }
+    };
+
     @Autowired
     ApplicationContext applicationContext;
 
 
+    @Bean
+    public DemoConsumerHooks consumerHooks(
+            @Value("${demo.consumer.hooks.enabled:false}") boolean enabled,
+            @Value("${demo.consumer.hooks.sample-rate:1}") int sampleRate)
+    {
+        return new DemoConsumerHooks(enabled, sampleRate);
+    }
+
+    /**
+     * A Flux argument is decorated once per stream with the sampled hooks, any other
+     * argument is only handed to the hooks if sampled. When the hooks are disabled the
+     * invocation proceeds without allocating.
+     */
     @Bean("consumerInterceptor")
-    public Advice consumerInterceptor() {
+    public Advice consumerInterceptor(DemoConsumerHooks consumerHooks) {
         return new MethodInterceptor() {
             @Override
             public Object invoke(MethodInvocation methodInvocation) throws Throwable {
-                if (!methodInvocation.getMethod().getName().equals("accept")) {
-                    return methodInvocation.proceed();
-                }
-
-                ReflectiveMethodInvocation reflectiveMethodInvocation = ((ReflectiveMethodInvocation) methodInvocation);
-                LOGGER.debug("intercept consumer - join point signature: {}", reflectiveMethodInvocation.toString());
-                LOGGER.debug("intercept consumer - intercepted method declared in class: {}", reflectiveMethodInvocation.getMethod().getDeclaringClass().getTypeName());
-                LOGGER.debug("intercept consumer - proxy class: {}", reflectiveMethodInvocation.getProxy().getClass().getName());
-                LOGGER.debug("intercept consumer - implementing class: {}", reflectiveMethodInvocation.getThis().getClass().getName());
-
                 Object[] args = methodInvocation.getArguments();
-                Assert.notNull(args, "arguments should not be null");
-                Assert.isTrue(args.length==1, "Consumer's accept method should only have 1 parameter");
-
                 if (args[0] instanceof Flux<?>) {
                     // IMPORTANT: accept() only entered once for Flux stream!!!
-                    Flux<?> interceptedFlux = DemoConsumerAdviceInvocator.invokeReactive((Flux<?>)args[0]);
-                    reflectiveMethodInvocation.setArguments(interceptedFlux);
-                } else {
+                    // always decorate the stream so the hooks can be switched on at runtime
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("intercept consumer - join point signature: {}", methodInvocation);
+                    }
+                    Flux<?> interceptedFlux = DemoConsumerAdviceInvocator.invokeReactive((Flux<?>)args[0], consumerHooks);
+                    ((ProxyMethodInvocation) methodInvocation).setArguments(interceptedFlux);
+                } else if (consumerHooks.sample()) {
                     Object interceptedObject = DemoConsumerAdviceInvocator.invoke(args[0]);
-                    reflectiveMethodInvocation.setArguments(interceptedObject);
+                    ((ProxyMethodInvocation) methodInvocation).setArguments(interceptedObject);
                 }
 
                 return methodInvocation.proceed();
@@ -58,6 +76,18 @@ public class DemoProxyConfig {
         };
     }
 
+    /**
+     * Restrict the interceptor to Consumer.accept, the pointcut is evaluated once per method
+     * when the proxy is created, so the other methods of the consumer (andThen, toString...)
+     * are invoked without entering the interceptor.
+     *
+     * Not registered as a bean, any Advisor bean would also be applied to every matching
+     * bean by the AspectJ auto proxy creator.
+     */
+    public static Advisor consumerAdvisor(Advice consumerInterceptor) {
+        return new DefaultPointcutAdvisor(ACCEPT_POINTCUT, consumerInterceptor);
+    }
+
 //    @Bean("supplierInterceptor")
 //    public Advice supplierInterceptor() {
 //        return new MethodInterceptor() {
@@ -87,7 +117,15 @@ public class DemoProxyConfig {
 
     @Bean("consumerProxyCreator")
     public BeanNameAutoProxyCreator consumerProxyCreator() {
-        BeanNameAutoProxyCreator beanNameAutoProxyCreator = new BeanNameAutoProxyCreator();
+        BeanNameAutoProxyCreator beanNameAutoProxyCreator = new BeanNameAutoProxyCreator() {
+            @Override
+            protected Object[] getAdvicesAndAdvisorsForBean(Class<?> beanClass, String beanName, TargetSource customTargetSource) {
+                if (super.getAdvicesAndAdvisorsForBean(beanClass, beanName, customTargetSource) == DO_NOT_PROXY) {
+                    return DO_NOT_PROXY;
+                }
+                return new Object[] { consumerAdvisor(applicationContext.getBean("consumerInterceptor", Advice.class)) };
+            }
+        };
 
         // varargs function(Object... args) is the equivalent of a
         // method declared with an array function(Object[] args)
@@ -98,8 +136,8 @@ public class DemoProxyConfig {
 
         beanNameAutoProxyCreator.setBeanNames(consumers); // consumer bean
 
-        // Spring AOP is based around Around advice delivered via MethodInterceptor
-        beanNameAutoProxyCreator.setInterceptorNames("consumerInterceptor");
+        // Spring AOP is based around Around advice delivered via MethodInterceptor,
+        // wrapped in an advisor to only advise the accept method (see consumerAdvisor)
         return beanNameAutoProxyCreator;
     }
 
@@ -1,28 +1,44 @@
 package com.jeffrey.example.demospringwebflux.controller;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityFields;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityPage;
 import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import com.jeffrey.example.demospringwebflux.service.DemoEntityPublisher;
 import com.jeffrey.example.demospringwebflux.service.DemoService;
+import com.jeffrey.example.demospringwebflux.util.DemoBlockingExecutor;
+import com.jeffrey.example.demospringwebflux.util.DemoETags;
+import com.jeffrey.example.demospringwebflux.util.DemoJsonArrayStream;
+import com.jeffrey.example.demospringwebflux.util.DemoPartialEntityWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.integration.channel.AbstractMessageChannel;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import javax.annotation.PostConstruct;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 @RestController
@@ -33,50 +49,212 @@ public class DemoController {
     DemoService demoService;
 
     /**
-     * StreamBridge bean which allows us to send data to an output binding
-     # effectively bridging non-stream application with spring-cloud-stream
+     * Send data to an output binding, effectively bridging non-stream application with
+     * spring-cloud-stream, like StreamBridge but with the output channel and the payload
+     * writer resolved once per binding, and optionally batched off the request thread
      */
     @Autowired
-    StreamBridge streamBridge;
+    DemoEntityPublisher demoEntityPublisher;
 
     /**
+     * Every call of the blocking DemoService is executed through this executor, with the
+     * bulkhead mode the calls are served by a bounded pool and a saturated pool answers 503
+     * instead of holding the request threads of the server
+     */
+    @Autowired
+    DemoBlockingExecutor demoBlockingExecutor;
+
+    @Value("${demo.page.max-limit:1000}")
+    int maxPageLimit;
+
+    @Value("${demo.stream.batch-size:500}")
+    int streamBatchSize;
+
+    @Autowired
+    ObjectMapper jsonMapper;
+
+    /**
+     * Only the fields requested are written, by a writer cached per set of fields
+     */
+    @Autowired
+    DemoPartialEntityWriter demoPartialEntityWriter;
+
+    private ObjectWriter demoEntityWriter;
+
+    @PostConstruct
+    public void init() {
+        this.demoEntityWriter = jsonMapper.writerFor(DemoEntity.class);
+    }
+
+    /**
+     * The response carries an entity tag and the last modified time of the entity, a
+     * conditional request (If-None-Match/If-Modified-Since) is answered with 304 and
+     * the body is not serialized
+     *
+     * The fields parameter selects the fields written, the entity itself is read whole
+     * through the entity cache
+     *
      * curl  -i -X GET "http://localhost:8081/demoEntity/id"
+     * curl  -i -X GET "http://localhost:8081/demoEntity/id?fields=id,createdOn"
+     * curl  -i -X GET "http://localhost:8081/demoEntity/id" -H 'If-None-Match: "etag"'
      */
     @GetMapping(path = "/demoEntity/{id}")
-    public ResponseEntity<DemoEntity> readDemoEntitiesByPathVariableId(
-            @PathVariable(value = "id") String id) throws JsonProcessingException {
+    public Mono<ResponseEntity<Object>> readDemoEntitiesByPathVariableId(
+            @PathVariable(value = "id") String id,
+            @RequestParam(value = "fields", required = false) String fields) {
+        DemoEntityFields entityFields = parseFields(fields);
+
+        return demoBlockingExecutor.call(() -> readDemoEntityById(id, entityFields))
+                .onErrorResume(RejectedExecutionException.class, DemoController::serviceUnavailable);
+    }
+
+    private ResponseEntity<Object> readDemoEntityById(String id, DemoEntityFields fields) {
         Optional<DemoEntity> demoEntityOptional = demoService.readDemoEntityById(id);
 
         // enable client-side cache control, works in Safari but not Chrome (unless not using spring-webflux)
-        return demoEntityOptional.map(demoEntity ->
-                ResponseEntity
+        return demoEntityOptional.map(demoEntity -> {
+            Object body = fields == null ? demoEntity : demoPartialEntityWriter.write(demoEntity, fields);
+            return ResponseEntity
                     .ok()
                     .cacheControl(CacheControl
                                     .maxAge(1800, TimeUnit.SECONDS)
                                     .cachePublic()
                                     .mustRevalidate())
-                    .body(demoEntity))
-                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+                    .eTag(DemoETags.of(demoEntity, fields))
+                    .lastModified(demoEntity.getCreatedOn().toEpochMilli())
+                    .body(body);
+        }).orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
     }
 
     /**
+     * The entity tag of the collection is derived from its estimated size and its last modified entity,
+     * a conditional request is validated before the collection is read, so 304 is
+     * answered without reading nor serializing the collection
+     *
      * curl -i -X GET "http://localhost:8081/demoEntities"
      * curl -i -X GET "http://localhost:8081/demoEntities?sortBy=createdOn"
+     * curl -i -X GET "http://localhost:8081/demoEntities?fields=id,createdOn"
+     * curl -i -X GET "http://localhost:8081/demoEntities" -H 'If-None-Match: "etag"'
      */
     @GetMapping(path = "/demoEntities")
-    public ResponseEntity<Collection<DemoEntity>> readAllDemoEntities(
-            @RequestParam(value = "sortBy", required = false, defaultValue = "") String sortBy)
+    public Mono<ResponseEntity<Object>> readAllDemoEntities(
+            @RequestParam(value = "sortBy", required = false, defaultValue = "") String sortBy,
+            @RequestParam(value = "fields", required = false) String fields,
+            ServerWebExchange serverWebExchange)
     {
-        Collection<DemoEntity> demoEntityCollection = demoService.readAllDemoEntities(sortBy);
+        DemoEntityFields entityFields = parseFields(fields);
+
+        return demoBlockingExecutor.call(() -> readAllDemoEntities(sortBy, entityFields, serverWebExchange))
+                .onErrorResume(RejectedExecutionException.class, DemoController::serviceUnavailable);
+    }
+
+    private ResponseEntity<Object> readAllDemoEntities(String sortBy, DemoEntityFields fields, ServerWebExchange serverWebExchange) {
+        Optional<DemoEntity> lastModifiedEntity = demoService.readLastModifiedDemoEntity();
+        // entities written before updatedOn was stamped only have their creation time
+        Optional<Instant> lastModified = lastModifiedEntity.map(demoEntity ->
+                demoEntity.getUpdatedOn() != null ? demoEntity.getUpdatedOn() : demoEntity.getCreatedOn());
+        String eTag = DemoETags.ofCollection(sortBy, fields, demoService.countDemoEntities(), lastModifiedEntity.orElse(null));
+
+        boolean notModified = lastModified.isPresent() ?
+                serverWebExchange.checkNotModified(eTag, lastModified.get()) :
+                serverWebExchange.checkNotModified(eTag);
+        if (notModified) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+
+        Collection<DemoEntity> demoEntityCollection = demoService.readAllDemoEntities(sortBy, fields);
 
         // enable client-side cache control, works in Safari but not Chrome (unless not using spring-webflux)
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity
+                .ok()
+                .cacheControl(CacheControl
+                                .maxAge(1800, TimeUnit.SECONDS)
+                                .cachePublic()
+                                .mustRevalidate())
+                .eTag(eTag);
+        lastModified.ifPresent(instant -> responseBuilder.lastModified(instant.toEpochMilli()));
+        return responseBuilder.<Object>body(fields == null ? demoEntityCollection : demoPartialEntityWriter.write(demoEntityCollection, fields));
+    }
+
+    /**
+     * The collection is written as a JSON array while the cursor is read, one buffer per
+     * batch of demo.stream.batch-size entities, so the memory does not grow with the size
+     * of the collection and the first entities are sent before the last ones are read.
+     * The status is committed with the first batch, an error after it truncates the response
+     *
+     * curl -i -N -X GET "http://localhost:8081/demoEntities?stream=true"
+     * curl -i -N -X GET "http://localhost:8081/demoEntities?stream=true&sortBy=createdOn"
+     * curl -i -N -X GET "http://localhost:8081/demoEntities?stream=true&fields=id,createdOn"
+     */
+    @GetMapping(path = "/demoEntities", params = {"stream=true", "!limit"})
+    public Mono<Void> streamAllDemoEntities(
+            @RequestParam(value = "sortBy", required = false, defaultValue = "") String sortBy,
+            @RequestParam(value = "fields", required = false) String fields,
+            ServerHttpResponse serverHttpResponse)
+    {
+        DemoEntityFields entityFields = parseFields(fields);
+        serverHttpResponse.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        // admitted once by the bulkhead, the cursor is then read on the same thread until closed
+        Flux<DataBuffer> body = demoBlockingExecutor.stream(DemoJsonArrayStream.of(
+                () -> demoService.streamAllDemoEntities(sortBy, streamBatchSize, entityFields),
+                entityFields == null ? demoEntityWriter : demoPartialEntityWriter.writerFor(entityFields),
+                serverHttpResponse.bufferFactory(),
+                streamBatchSize
+        ));
+
+        return serverHttpResponse.writeWith(body)
+                .onErrorResume(RejectedExecutionException.class, e -> {
+                    if (serverHttpResponse.isCommitted()) {
+                        return Mono.error(e);
+                    }
+                    LOGGER.debug("blocking call rejected: {}", e.getMessage());
+                    serverHttpResponse.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                    serverHttpResponse.getHeaders().remove(HttpHeaders.CONTENT_TYPE);
+                    return serverHttpResponse.setComplete();
+                });
+    }
+
+    /**
+     * Keyset pagination, pass the continuation of the response to read the next page
+     *
+     * curl -i -X GET "http://localhost:8081/demoEntities?limit=100"
+     * curl -i -X GET "http://localhost:8081/demoEntities?sortBy=createdOn&limit=100&continuation=token"
+     * curl -i -X GET "http://localhost:8081/demoEntities?limit=100&fields=id,createdOn"
+     */
+    @GetMapping(path = "/demoEntities", params = "limit")
+    public Mono<ResponseEntity<Object>> readDemoEntitiesPage(
+            @RequestParam(value = "sortBy", required = false, defaultValue = "") String sortBy,
+            @RequestParam(value = "limit") int limit,
+            @RequestParam(value = "continuation", required = false) String continuation,
+            @RequestParam(value = "fields", required = false) String fields)
+    {
+        if (limit <= 0 || limit > maxPageLimit) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        DemoEntityFields entityFields = parseFields(fields);
+
+        return demoBlockingExecutor.call(() -> readDemoEntitiesPage(sortBy, limit, continuation, entityFields))
+                .onErrorResume(RejectedExecutionException.class, DemoController::serviceUnavailable);
+    }
+
+    private ResponseEntity<Object> readDemoEntitiesPage(String sortBy, int limit, String continuation, DemoEntityFields fields) {
+        DemoEntityPage demoEntityPage;
+        try {
+            demoEntityPage = demoService.readDemoEntitiesPage(sortBy, continuation, limit, fields);
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("invalid continuation: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
         return ResponseEntity
                 .ok()
                 .cacheControl(CacheControl
                                 .maxAge(1800, TimeUnit.SECONDS)
                                 .cachePublic()
                                 .mustRevalidate())
-                .body(demoEntityCollection);
+                .eTag(DemoETags.of(demoEntityPage, fields))
+                .body(fields == null ? demoEntityPage : demoPartialEntityWriter.write(demoEntityPage, fields));
     }
 
     /**
@@ -84,17 +262,16 @@ public class DemoController {
      * curl -i -X POST 'http://localhost:8081/demoEntity' -H "Content-Type: application/json" -d '{"data":"abc"}'
      */
     @PostMapping(path = "/demoEntity")
-    public ResponseEntity<DemoEntity> createDemoEntityByJson(
+    public Mono<ResponseEntity<DemoEntity>> createDemoEntityByJson(
             @RequestBody(required = false) DemoEntity demoEntity)
     {
-        demoEntity = demoEntity==null? new DemoEntity(null):demoEntity;
-
-        // the binding name is auto-created by the configuration spring.cloud.stream.source
-        streamBridge.send("supplier2-out-0", demoEntity);
+        DemoEntity newEntity = demoEntity==null? new DemoEntity(null):demoEntity;
 
-        return ResponseEntity
-                .status(HttpStatus.CREATED)
-                .body(demoEntity);
+        return publish(newEntity)
+                .map(sent -> ResponseEntity
+                        .status(HttpStatus.CREATED)
+                        .body(newEntity))
+                .onErrorResume(RejectedExecutionException.class, DemoController::serviceUnavailable);
     }
 
     /**
@@ -130,21 +307,36 @@ public class DemoController {
          * - use Mono and Flux return types when not tied to any blocking library
          */
 
-        return serverWebExchange.getFormData().subscribeOn(Schedulers.elastic()).map(_formData -> {
+        return serverWebExchange.getFormData().subscribeOn(Schedulers.elastic()).flatMap(_formData -> {
             DemoEntity demoEntity = new DemoEntity(_formData.getFirst("data"));
 
-            // the binding name is auto-created by the configuration spring.cloud.stream.source
-            streamBridge.send("supplier2-out-0", demoEntity);
-
-            return demoEntity;
+            return publish(demoEntity).thenReturn(demoEntity);
 
         }).map(demoEntity -> {
             return ResponseEntity.status(HttpStatus.CREATED).body(demoEntity);
-        });
+        }).onErrorResume(RejectedExecutionException.class, DemoController::serviceUnavailable);
 
 //        return serverWebExchange.getFormData().subscribeOn(Schedulers.elastic()).map(
 //            _formData -> demoService.createDemoEntity(new DemoEntity(_formData.getFirst("data"))) // blocking DB write goes here
 //        ).map(ResponseEntity.status(HttpStatus.CREATED)::body);
     }
 
+    private Mono<Boolean> publish(DemoEntity demoEntity) {
+        // the binding name is auto-created by the configuration spring.cloud.stream.source
+        return Mono.fromFuture(demoEntityPublisher.publish(demoEntity));
+    }
+
+    private static DemoEntityFields parseFields(String fields) {
+        try {
+            return DemoEntityFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static <T> Mono<ResponseEntity<T>> serviceUnavailable(RejectedExecutionException e) {
+        LOGGER.debug("blocking call rejected: {}", e.getMessage());
+        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
 }
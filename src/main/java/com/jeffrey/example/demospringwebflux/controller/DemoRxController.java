@@ -1,26 +1,38 @@
 package com.jeffrey.example.demospringwebflux.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.jeffrey.example.demospringwebflux.config.DemoConfig;
+import com.jeffrey.example.demospringwebflux.dao.DemoBulkWriteResult;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityChange;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityFields;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityPage;
 import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import com.jeffrey.example.demospringwebflux.service.DemoOutboxService;
 import com.jeffrey.example.demospringwebflux.service.DemoRxService;
+import com.jeffrey.example.demospringwebflux.util.DemoETags;
+import com.jeffrey.example.demospringwebflux.util.DemoIngestSink;
+import com.jeffrey.example.demospringwebflux.util.DemoPartialEntityWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
-import reactor.core.publisher.EmitterProcessor;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/rx")
@@ -28,19 +40,41 @@ public class DemoRxController {
     private static final Logger LOGGER = LoggerFactory.getLogger(DemoController.class);
 
     @Autowired
-    @Qualifier("demoEntityEmitProcessor")
-    EmitterProcessor<DemoEntity> demoEntityEmitterProcessor;
+    @Qualifier("demoEntityIngestSink")
+    DemoIngestSink<DemoEntity> demoEntityIngestSink;
 
     @Autowired
     DemoRxService demoRxService;
 
+    @Autowired
+    DemoOutboxService demoOutboxService;
+
+    /**
+     * Only the fields requested are written, by a writer cached per set of fields
+     */
+    @Autowired
+    DemoPartialEntityWriter demoPartialEntityWriter;
+
+    @Value("${demo.page.max-limit:1000}")
+    int maxPageLimit;
+
     /**
+     * The response carries an entity tag and the last modified time of the entity, a
+     * conditional request (If-None-Match/If-Modified-Since) is answered with 304 and
+     * the body is not serialized
+     *
+     * The fields parameter selects the fields written, the entity itself is read whole
+     * through the entity cache
+     *
      * curl  -i -X GET "http://localhost:8081/rx/demoEntity/id"
+     * curl  -i -X GET "http://localhost:8081/rx/demoEntity/id?fields=id,createdOn"
+     * curl  -i -X GET "http://localhost:8081/rx/demoEntity/id" -H 'If-None-Match: "etag"'
      */
     @GetMapping(path = "/demoEntity/{id}")
-    public Mono<ResponseEntity<DemoEntity>> readDemoEntitiesByPathVariableId(
-            @PathVariable(value = "id") String id) throws JsonProcessingException {
-        Mono<DemoEntity> demoEntityMono = demoRxService.readDemoEntityById(id);
+    public Mono<ResponseEntity<Object>> readDemoEntitiesByPathVariableId(
+            @PathVariable(value = "id") String id,
+            @RequestParam(value = "fields", required = false) String fields) throws JsonProcessingException {
+        DemoEntityFields entityFields = parseFields(fields);
 
         return demoRxService.readDemoEntityById(id).map(demoEntity ->
                 ResponseEntity
@@ -49,20 +83,88 @@ public class DemoRxController {
                                     .maxAge(1800, TimeUnit.SECONDS)
                                     .cachePublic()
                                     .mustRevalidate())
-                    .body(demoEntity))
+                    .eTag(DemoETags.of(demoEntity, entityFields))
+                    .lastModified(demoEntity.getCreatedOn().toEpochMilli())
+                    .<Object>body(entityFields == null ? demoEntity : demoPartialEntityWriter.write(demoEntity, entityFields)))
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
     /**
      * curl -i -X GET "http://localhost:8081/rx/demoEntities"
      * curl -i -X GET "http://localhost:8081/rx/demoEntities?sortBy=createdOn"
+     * curl -i -X GET "http://localhost:8081/rx/demoEntities?fields=id,createdOn"
      */
     @GetMapping(path = "/demoEntities", produces = {MediaType.TEXT_EVENT_STREAM_VALUE,"application/stream+json"})
-    public Flux<DemoEntity> readAllDemoEntities(
-            @RequestParam(value="sortBy", required=false, defaultValue="") String sortBy)
+    public Flux<?> readAllDemoEntities(
+            @RequestParam(value="sortBy", required=false, defaultValue="") String sortBy,
+            @RequestParam(value="fields", required=false) String fields)
             throws JsonProcessingException
     {
-        return demoRxService.readAllDemoEntities(sortBy);
+        DemoEntityFields entityFields = parseFields(fields);
+        if (entityFields == null) {
+            return demoRxService.readAllDemoEntities(sortBy);
+        }
+        return demoRxService.readAllDemoEntities(sortBy, entityFields).map(demoEntity -> demoPartialEntityWriter.write(demoEntity, entityFields));
+    }
+
+    /**
+     * Push every new entity to the client as it is written, backed by the change stream of
+     * the collection. Each event carries its resume token as the event id, a reconnecting
+     * client (e.g. EventSource) sends the last one back as Last-Event-ID and continues
+     * right after the last change it received.
+     *
+     * curl -i -N -X GET "http://localhost:8081/rx/demoEntities/live"
+     * curl -i -N -X GET "http://localhost:8081/rx/demoEntities/live" -H "Last-Event-ID: token"
+     */
+    @GetMapping(path = "/demoEntities/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<DemoEntity>> readLiveDemoEntities(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId)
+    {
+        Flux<DemoEntityChange> changes;
+        try {
+            changes = demoRxService.watchDemoEntities(lastEventId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        return changes.map(change -> ServerSentEvent.builder(change.getDemoEntity())
+                .id(change.getResumeToken())
+                .event(change.getOperationType())
+                .build());
+    }
+
+    /**
+     * Keyset pagination, pass the continuation of the response to read the next page
+     *
+     * curl -i -X GET "http://localhost:8081/rx/demoEntities?limit=100"
+     * curl -i -X GET "http://localhost:8081/rx/demoEntities?sortBy=createdOn&limit=100&continuation=token"
+     * curl -i -X GET "http://localhost:8081/rx/demoEntities?limit=100&fields=id,createdOn"
+     */
+    @GetMapping(path = "/demoEntities", params = "limit", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> readDemoEntitiesPage(
+            @RequestParam(value="sortBy", required=false, defaultValue="") String sortBy,
+            @RequestParam(value="limit") int limit,
+            @RequestParam(value="continuation", required=false) String continuation,
+            @RequestParam(value="fields", required=false) String fields)
+    {
+        if (limit <= 0 || limit > maxPageLimit) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        DemoEntityFields entityFields = parseFields(fields);
+
+        return demoRxService.readDemoEntitiesPage(sortBy, continuation, limit, entityFields).map(demoEntityPage ->
+                ResponseEntity
+                    .ok()
+                    .cacheControl(CacheControl
+                                    .maxAge(1800, TimeUnit.SECONDS)
+                                    .cachePublic()
+                                    .mustRevalidate())
+                    .eTag(DemoETags.of(demoEntityPage, entityFields))
+                    .<Object>body(entityFields == null ? demoEntityPage : demoPartialEntityWriter.write(demoEntityPage, entityFields)))
+                .onErrorResume(IllegalArgumentException.class, e -> {
+                    LOGGER.debug("invalid continuation: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().build());
+                });
     }
 
     /**
@@ -75,37 +177,84 @@ public class DemoRxController {
     {
         demoEntity = demoEntity==null? new DemoEntity(null):demoEntity;
 
-        // TODO: what happen if the emitter encounter exception?
-        demoEntityEmitterProcessor.onNext(demoEntity);
+        if (demoOutboxService.isEnabled()) {
+            // the entity and its message are written to the outbox, the relay publish it later
+            return demoOutboxService.enqueue(demoEntity).map(_demoEntity ->
+                    ResponseEntity.status(HttpStatus.CREATED).body(_demoEntity)
+            );
+        }
 
-        return Mono.just(ResponseEntity.status(HttpStatus.CREATED).body(demoEntity));
+        // the sink rejects the entity when its buffer is full (e.g. the broker is slow)
+        final DemoEntity newDemoEntity = demoEntity;
+        return demoEntityIngestSink.emit(newDemoEntity).map(accepted -> accepted ?
+                ResponseEntity.status(HttpStatus.CREATED).body(newDemoEntity) :
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).<DemoEntity>build()
+        );
     }
 
     /**
+     * The response lists the write result of each entity by its index in the request, 201 if
+     * every entity is saved, 207 if some are not, each failed result carries its error
+     *
      * curl -i -X POST 'http://localhost:8081/rx/demoEntities' -H "Content-Type: application/json" -d '[{"data":"abc"},{"data":"def"}]'
      */
     @PostMapping(path = "/demoEntities")
-    public Mono<ResponseEntity<Iterable<DemoEntity>>> createDemoEntitiesByJson(
+    public Mono<ResponseEntity<List<DemoBulkWriteResult>>> createDemoEntitiesByJson(
             @RequestBody Iterable<DemoEntity> demoEntities)
     {
-        List<DemoEntity> savedEntities = new ArrayList<>();
+        List<DemoBulkWriteResult> results = new ArrayList<>();
+        AtomicBoolean hasFailure = new AtomicBoolean(false);
 
-        Mono<List<DemoEntity>> savedEntitiesMono = demoRxService.createDemoEntities(demoEntities)
-                .doOnNext(demoEntity -> {
-                    LOGGER.debug("saved entity: " + demoEntity.toString());
-                    savedEntities.add(demoEntity);
-                    demoEntityEmitterProcessor.onNext(demoEntity);
+        Mono<List<DemoBulkWriteResult>> resultsMono = demoRxService.createDemoEntities(demoEntities)
+                .concatMap(this::emitSavedEntity)
+                .doOnNext(result -> {
+                    results.add(result);
+                    if (!result.isSuccess()) {
+                        // partial failure, the other entities are still saved
+                        LOGGER.error("error saving entity at index {}: {}", result.getIndex(), result.getError());
+                        hasFailure.set(true);
+                        return;
+                    }
+                    LOGGER.debug("saved entity: {}", result.getDemoEntity());
                 })
                 .doOnError(throwable -> {
                     LOGGER.error("error: {}", throwable.getMessage());
                 })
-                .collectList();
+                .then(Mono.just(results));
+
+        return resultsMono.map(_results ->
+                                    ResponseEntity.status(hasFailure.get() ? HttpStatus.MULTI_STATUS : HttpStatus.CREATED)
+                                            .body(_results)
+                                ).onErrorResume(throwable -> Mono.just(
+                                    // the results of the entities written before the error
+                                    ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(results)
+                                ));
+    }
 
-        return savedEntitiesMono.map(_savedEntities ->
-                                    ResponseEntity.status(HttpStatus.CREATED).body((Iterable<DemoEntity>)savedEntities)
-                                ).onErrorReturn(
-                                    ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body((Iterable<DemoEntity>)savedEntities)
-                                );
+    /**
+     * Streaming ingest, the request body is decoded as a stream of entities and the write
+     * result of each entity is streamed back as soon as its chunk is saved, the heap usage
+     * is bounded by the bulk chunk size and the number of chunks in flight regardless of
+     * the size of the request.
+     *
+     * curl -i -X POST 'http://localhost:8081/rx/demoEntities' -H "Content-Type: application/x-ndjson" -H "Accept: application/x-ndjson" --data-binary $'{"data":"abc"}\n{"data":"def"}\n'
+     */
+    @PostMapping(
+            path = "/demoEntities",
+            consumes = {DemoConfig.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE},
+            produces = {DemoConfig.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE})
+    public Flux<DemoBulkWriteResult> createDemoEntitiesByStream(
+            @RequestBody Flux<DemoEntity> demoEntities)
+    {
+        return demoRxService.createDemoEntities(demoEntities)
+                .concatMap(this::emitSavedEntity)
+                .doOnNext(result -> {
+                    if (!result.isSuccess()) {
+                        LOGGER.error("error saving entity at index {}: {}", result.getIndex(), result.getError());
+                        return;
+                    }
+                    LOGGER.debug("saved entity: {}", result.getDemoEntity());
+                });
     }
 
     /**
@@ -116,13 +265,48 @@ public class DemoRxController {
             ServerWebExchange serverWebExchange)
     {
         Mono<MultiValueMap<String, String>> formData = serverWebExchange.getFormData();
-        return formData.map(_formData -> {
+
+        if (demoOutboxService.isEnabled()) {
+            return formData.flatMap(_formData ->
+                    demoOutboxService.enqueue(new DemoEntity(_formData.getFirst("data")))
+            ).map(newDemoEntity ->
+                    ResponseEntity.status(HttpStatus.CREATED).body(newDemoEntity)
+            );
+        }
+
+        return formData.flatMap(_formData -> {
                 DemoEntity demoEntity = new DemoEntity(_formData.getFirst("data"));
-                demoEntityEmitterProcessor.onNext(demoEntity);
-                return demoEntity;
-        }).map(newDemoEntity ->
-                ResponseEntity.status(HttpStatus.CREATED).body(newDemoEntity)
-        );
+                return demoEntityIngestSink.emit(demoEntity).map(accepted -> accepted ?
+                        ResponseEntity.status(HttpStatus.CREATED).body(demoEntity) :
+                        ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).<DemoEntity>build()
+                );
+        });
+    }
+
+    /**
+     * Emit a saved entity to supplierRx0, the stream waits for room in the sink whatever its
+     * overflow policy so the ingest slows down with the broker instead of buffering. A saved
+     * entity still not emitted after the block timeout is reported as a failed result.
+     */
+    private Mono<DemoBulkWriteResult> emitSavedEntity(DemoBulkWriteResult result) {
+        if (!result.isSuccess()) {
+            return Mono.just(result);
+        }
+        return demoEntityIngestSink.emitAwait(result.getDemoEntity()).map(accepted -> {
+            if (accepted) {
+                return result;
+            }
+            LOGGER.warn("ingest sink is full, saved entity not emitted: {}", result.getDemoEntity().getId());
+            return DemoBulkWriteResult.failure(result.getIndex(), result.getDemoEntity(), "saved but not published, the ingest sink is full");
+        });
+    }
+
+    private static DemoEntityFields parseFields(String fields) {
+        try {
+            return DemoEntityFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
 }
@@ -0,0 +1,61 @@
+package com.jeffrey.example.demospringwebflux.dao;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+
+/**
+ * Outcome of writing a single entity as part of a bulk write, the index
+ * refers to the position of the entity in the input stream.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DemoBulkWriteResult {
+
+    public static final String INDEX = "index";
+    public static final String DEMO_ENTITY = "demoEntity";
+    public static final String ERROR = "error";
+
+    @JsonProperty(INDEX)
+    private final long index;
+
+    @JsonProperty(DEMO_ENTITY)
+    private final DemoEntity demoEntity;
+
+    @JsonProperty(ERROR)
+    private final String error;
+
+    private DemoBulkWriteResult(long index, DemoEntity demoEntity, String error) {
+        this.index = index;
+        this.demoEntity = demoEntity;
+        this.error = error;
+    }
+
+    public static DemoBulkWriteResult success(long index, DemoEntity demoEntity) {
+        return new DemoBulkWriteResult(index, demoEntity, null);
+    }
+
+    public static DemoBulkWriteResult failure(long index, DemoEntity demoEntity, String error) {
+        return new DemoBulkWriteResult(index, demoEntity, error);
+    }
+
+    public String toString() {
+        return String.format("index: %d, demoEntity: [%s], error: %s", index, demoEntity, error);
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    public DemoEntity getDemoEntity() {
+        return demoEntity;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+}
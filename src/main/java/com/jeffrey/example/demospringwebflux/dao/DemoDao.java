@@ -4,10 +4,15 @@ import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
 import com.jeffrey.example.demospringwebflux.repository.DemoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Component
@@ -17,10 +22,24 @@ public class DemoDao {
     @Autowired
     DemoRepository demoRepository;
 
+    @Autowired
+    MongoTemplate mongoTemplate;
+
     public DemoEntity createDemoEntity(DemoEntity demoEntity) {
+        demoEntity.setUpdatedOn(Instant.now());
         return demoRepository.save(demoEntity);
     }
 
+    /**
+     * @param fields the projection, null to read the whole entities
+     */
+    public Collection<DemoEntity> readAllDemoEntities(String sortBy, DemoEntityFields fields) {
+        if (fields == null) {
+            return readAllDemoEntities(sortBy);
+        }
+        return mongoTemplate.find(fields.project(DemoEntityCursor.sortQuery(sortBy), sortBy), DemoEntity.class);
+    }
+
     public Collection<DemoEntity> readAllDemoEntities(String sortBy) {
         if (DemoEntity.CREATED_ON.equals(sortBy)) {
             return demoRepository.findAll(Sort.by(Sort.Direction.ASC, DemoEntity.CREATED_ON));
@@ -37,6 +56,57 @@ public class DemoDao {
         }
     }
 
+    /**
+     * Same ordering as readAllDemoEntities, the entities are fetched from the server in batches
+     * of batchSize as the cursor is iterated, the cursor must be closed by the caller
+     */
+    public CloseableIterator<DemoEntity> streamAllDemoEntities(String sortBy, int batchSize, DemoEntityFields fields) {
+        Query query = DemoEntityCursor.sortQuery(sortBy).cursorBatchSize(batchSize);
+        return mongoTemplate.stream(fields == null ? query : fields.project(query, sortBy), DemoEntity.class);
+    }
+
+    /**
+     * Read a page of entities with keyset pagination, see {@link DemoEntityCursor}
+     *
+     * @param continuation token of the previous page, null or empty for the first page
+     * @throws IllegalArgumentException if the continuation token is invalid
+     */
+    public DemoEntityPage readDemoEntitiesPage(String sortBy, String continuation, int limit) {
+        return readDemoEntitiesPage(sortBy, continuation, limit, null);
+    }
+
+    /**
+     * @param fields the projection, null to read the whole entities
+     */
+    public DemoEntityPage readDemoEntitiesPage(String sortBy, String continuation, int limit, DemoEntityFields fields) {
+        DemoEntityCursor cursor = continuation==null || continuation.isEmpty() ?
+                null : DemoEntityCursor.decode(continuation, sortBy);
+        Query query = DemoEntityCursor.pageQuery(sortBy, cursor, limit);
+        List<DemoEntity> entities = mongoTemplate.find(fields == null ? query : fields.project(query, sortBy), DemoEntity.class);
+        return DemoEntityCursor.toPage(sortBy, entities, limit);
+    }
+
+    /**
+     * Exact count, the collection metadata may lag behind the writes
+     */
+    /**
+     * Read from the collection metadata instead of counting the documents, it may lag behind
+     * the writes in progress
+     */
+    public long countDemoEntities() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(DemoEntity.class)).estimatedDocumentCount();
+    }
+
+    /**
+     * The most recently written entity, created or replaced, by updatedOn
+     */
+    public Optional<DemoEntity> readLastModifiedDemoEntity() {
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.DESC, DemoEntity.UPDATED_ON, DemoEntity.CREATED_ON, DemoEntity.ID))
+                .limit(1);
+        return Optional.ofNullable(mongoTemplate.findOne(query, DemoEntity.class));
+    }
+
     public Optional<DemoEntity> readDemoEntityById(String id) {
         return demoRepository.findById(id);
     }
@@ -0,0 +1,47 @@
+package com.jeffrey.example.demospringwebflux.dao;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+
+/**
+ * A change of an entity observed on the change stream of the collection,
+ * the resume token is opaque and resumes the stream right after this change.
+ */
+public class DemoEntityChange {
+
+    public static final String RESUME_TOKEN = "resumeToken";
+    public static final String OPERATION_TYPE = "operationType";
+    public static final String DEMO_ENTITY = "demoEntity";
+
+    @JsonProperty(RESUME_TOKEN)
+    private final String resumeToken;
+
+    @JsonProperty(OPERATION_TYPE)
+    private final String operationType;
+
+    @JsonProperty(DEMO_ENTITY)
+    private final DemoEntity demoEntity;
+
+    public DemoEntityChange(String resumeToken, String operationType, DemoEntity demoEntity) {
+        this.resumeToken = resumeToken;
+        this.operationType = operationType;
+        this.demoEntity = demoEntity;
+    }
+
+    public String toString() {
+        return String.format("operationType: %s, demoEntity: [%s]", operationType, demoEntity);
+    }
+
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
+    public String getOperationType() {
+        return operationType;
+    }
+
+    public DemoEntity getDemoEntity() {
+        return demoEntity;
+    }
+
+}
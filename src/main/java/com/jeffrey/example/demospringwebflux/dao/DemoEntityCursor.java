@@ -0,0 +1,150 @@
+package com.jeffrey.example.demospringwebflux.dao;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Keyset (seek) pagination over the entities.
+ *
+ * The position of a page is the sort key and the id of its last entity, the
+ * next page is read with a range query on the compound (sort key, id) index
+ * instead of skipping the preceding documents, so every page costs the same
+ * no matter how deep the client pages.
+ *
+ * The position is handed to the client as an opaque continuation token.
+ */
+public class DemoEntityCursor {
+
+    private static final ObjectMapper TOKEN_MAPPER = new ObjectMapper();
+
+    @JsonProperty("s")
+    private String sortBy;
+
+    @JsonProperty("v")
+    private String lastValue;
+
+    @JsonProperty("i")
+    private String lastId;
+
+    private DemoEntityCursor() {}
+
+    private DemoEntityCursor(String sortBy, String lastValue, String lastId) {
+        this.sortBy = sortBy;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+
+    /**
+     * Only createdOn and data are supported as sort key, anything else is ordered by id
+     */
+    static String sortField(String sortBy) {
+        if (DemoEntity.CREATED_ON.equals(sortBy) || DemoEntity.DATA.equals(sortBy)) {
+            return sortBy;
+        }
+        return DemoEntity.ID;
+    }
+
+    /**
+     * Query of every entity in the order of readAllDemoEntities, ascending by createdOn, data
+     * or id, in the natural order for any other sort key
+     */
+    static Query sortQuery(String sortBy) {
+        Query query = new Query();
+        if (DemoEntity.CREATED_ON.equals(sortBy) || DemoEntity.DATA.equals(sortBy) || DemoEntity.ID.equals(sortBy)) {
+            query.with(Sort.by(Sort.Direction.ASC, sortBy));
+        }
+        return query;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token is malformed or was issued for a different sort key
+     */
+    public static DemoEntityCursor decode(String continuation, String sortBy) {
+        DemoEntityCursor cursor;
+        try {
+            byte [] json = Base64.getUrlDecoder().decode(continuation);
+            cursor = TOKEN_MAPPER.readValue(json, DemoEntityCursor.class);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("malformed continuation token", e);
+        }
+
+        if (cursor.lastId == null || !sortField(sortBy).equals(cursor.sortBy)) {
+            throw new IllegalArgumentException("continuation token does not match the sort order");
+        }
+        return cursor;
+    }
+
+    public static String encode(String sortBy, DemoEntity lastEntity) {
+        String sortField = sortField(sortBy);
+        String lastValue = null;
+        if (DemoEntity.CREATED_ON.equals(sortField)) {
+            lastValue = lastEntity.getCreatedOn() == null ? null : String.valueOf(lastEntity.getCreatedOn().toEpochMilli());
+        } else if (DemoEntity.DATA.equals(sortField)) {
+            lastValue = lastEntity.getData();
+        }
+
+        try {
+            byte [] json = TOKEN_MAPPER.writeValueAsBytes(new DemoEntityCursor(sortField, lastValue, lastEntity.getId()));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Build the query of a page, one extra entity is read to find out if there is a next page
+     *
+     * @param cursor position of the previous page, null for the first page
+     */
+    static Query pageQuery(String sortBy, DemoEntityCursor cursor, int limit) {
+        String sortField = sortField(sortBy);
+        Query query = new Query();
+
+        if (cursor != null) {
+            if (DemoEntity.ID.equals(sortField)) {
+                query.addCriteria(Criteria.where(DemoEntity.ID).gt(cursor.lastId));
+
+            } else if (cursor.lastValue == null) {
+                // null sorts before any value
+                query.addCriteria(new Criteria().orOperator(
+                        Criteria.where(sortField).is(null).and(DemoEntity.ID).gt(cursor.lastId),
+                        Criteria.where(sortField).ne(null)));
+
+            } else {
+                Object lastValue = DemoEntity.CREATED_ON.equals(sortField) ?
+                        Date.from(Instant.ofEpochMilli(Long.parseLong(cursor.lastValue))) : cursor.lastValue;
+                query.addCriteria(new Criteria().orOperator(
+                        Criteria.where(sortField).gt(lastValue),
+                        Criteria.where(sortField).is(lastValue).and(DemoEntity.ID).gt(cursor.lastId)));
+            }
+        }
+
+        Sort sort = DemoEntity.ID.equals(sortField) ?
+                Sort.by(Sort.Direction.ASC, DemoEntity.ID) :
+                Sort.by(Sort.Direction.ASC, sortField, DemoEntity.ID);
+
+        return query.with(sort).limit(limit + 1);
+    }
+
+    /**
+     * @param entities the result of {@link #pageQuery(String, DemoEntityCursor, int)}
+     */
+    static DemoEntityPage toPage(String sortBy, List<DemoEntity> entities, int limit) {
+        if (entities.size() <= limit) {
+            return new DemoEntityPage(entities, null);
+        }
+        List<DemoEntity> items = entities.subList(0, limit);
+        return new DemoEntityPage(items, encode(sortBy, items.get(limit - 1)));
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.jeffrey.example.demospringwebflux.dao;
+
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import org.springframework.data.mongodb.core.query.Field;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The fields of the entities requested by a client (e.g. fields=id,createdOn), read from
+ * MongoDB as a projection and written as a partial JSON object of only those fields
+ * (see DemoPartialEntityWriter).
+ *
+ * The projection also includes the id and the sort key, which the continuation of a page
+ * is derived from, these are left out of the partial JSON unless requested.
+ */
+public final class DemoEntityFields {
+
+    private static final List<String> FIELDS = Arrays.asList(DemoEntity.ID, DemoEntity.CREATED_ON, DemoEntity.DATA);
+
+    // in the declaration order of the entity, whatever the order requested
+    private final List<String> names;
+
+    private DemoEntityFields(List<String> names) {
+        this.names = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * @param fields comma separated field names
+     * @return null if no field is given, meaning the whole entity
+     * @throws IllegalArgumentException if a field is unknown
+     */
+    public static DemoEntityFields parse(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return null;
+        }
+
+        Set<String> requested = new HashSet<>();
+        for (String field:fields.split(",")) {
+            String name = field.trim();
+            if (!FIELDS.contains(name)) {
+                throw new IllegalArgumentException("unknown field: " + name + ", expected any of " + FIELDS);
+            }
+            requested.add(name);
+        }
+
+        List<String> names = new ArrayList<>(requested.size());
+        for (String name:FIELDS) {
+            if (requested.contains(name)) {
+                names.add(name);
+            }
+        }
+        return new DemoEntityFields(names);
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public boolean includes(String name) {
+        return names.contains(name);
+    }
+
+    /**
+     * Fields not projected are left as initialized by the entity constructor
+     */
+    Query project(Query query, String sortBy) {
+        Field projection = query.fields();
+        for (String name:names) {
+            projection.include(name);
+        }
+        projection.include(DemoEntity.ID);
+        projection.include(DemoEntityCursor.sortField(sortBy));
+        return query;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", names);
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.jeffrey.example.demospringwebflux.dao;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+
+import java.util.List;
+
+/**
+ * A page of entities read with keyset pagination, the continuation token
+ * should be passed back to read the next page, it is absent on the last page.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DemoEntityPage {
+
+    public static final String ITEMS = "items";
+    public static final String CONTINUATION = "continuation";
+
+    @JsonProperty(ITEMS)
+    private final List<DemoEntity> items;
+
+    @JsonProperty(CONTINUATION)
+    private final String continuation;
+
+    public DemoEntityPage(List<DemoEntity> items, String continuation) {
+        this.items = items;
+        this.continuation = continuation;
+    }
+
+    public List<DemoEntity> getItems() {
+        return items;
+    }
+
+    public String getContinuation() {
+        return continuation;
+    }
+
+}
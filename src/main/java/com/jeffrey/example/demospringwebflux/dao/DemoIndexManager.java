@@ -0,0 +1,188 @@
+package com.jeffrey.example.demospringwebflux.dao;
+
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import com.jeffrey.example.demospringwebflux.entity.DemoOutboxEntity;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Declares the indexes required by the queries of the DAOs, creates them once
+ * the application is ready and reports missing or unused indexes.
+ *
+ * Index creation is triggered asynchronously so it never delays the application
+ * readiness, a query executed before its index is built falls back to a
+ * collection scan.
+ */
+@Component
+public class DemoIndexManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DemoIndexManager.class);
+
+    private static final String ID_INDEX = "_id_";
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Value("${demo.index.enabled:true}")
+    boolean enabled;
+
+    @Value("${demo.outbox.retention-hours:24}")
+    long outboxRetentionHours;
+
+    // index name -> outcome of the last attempt to create it
+    private final Map<String, String> creationStatus = new ConcurrentHashMap<>();
+
+    private volatile boolean isInitialized = false;
+
+    /**
+     * Indexes required by each entity class
+     */
+    Map<Class<?>, List<Index>> declaredIndexes() {
+        Map<Class<?>, List<Index>> declaredIndexes = new LinkedHashMap<>();
+
+        List<Index> demoEntityIndexes = new ArrayList<>();
+        // sorted reads and keyset pagination by createdOn (see DemoEntityCursor)
+        demoEntityIndexes.add(new Index()
+                .on(DemoEntity.CREATED_ON, Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named("createdOn_id"));
+        // sorted reads and keyset pagination by data, prefix also serves DemoRxRepository.findAllByData
+        demoEntityIndexes.add(new Index()
+                .on(DemoEntity.DATA, Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named("data_id"));
+        // last modified entity of the collection ETag, same keys and order as the sort of
+        // DemoDao.readLastModifiedDemoEntity so the first index entry is the answer
+        demoEntityIndexes.add(new Index()
+                .on(DemoEntity.UPDATED_ON, Sort.Direction.DESC)
+                .on(DemoEntity.CREATED_ON, Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("updatedOn_createdOn_id"));
+        declaredIndexes.put(DemoEntity.class, demoEntityIndexes);
+
+        List<Index> outboxIndexes = new ArrayList<>();
+        // pending records read by the outbox relay
+        outboxIndexes.add(new Index()
+                .on(DemoOutboxEntity.DISPATCHED_ON, Sort.Direction.ASC)
+                .on(DemoOutboxEntity.CREATED_ON, Sort.Direction.ASC)
+                .named("dispatchedOn_createdOn"));
+        // dispatched records are purged after the retention period, pending records never expire
+        outboxIndexes.add(new Index()
+                .on(DemoOutboxEntity.DISPATCHED_ON, Sort.Direction.ASC)
+                .expire(outboxRetentionHours, TimeUnit.HOURS)
+                .named("dispatchedOn_ttl"));
+        declaredIndexes.put(DemoOutboxEntity.class, outboxIndexes);
+
+        return declaredIndexes;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    protected void ensureIndexes() {
+        if (!isInitialized) { // prevents spring framework double-fire application ready event
+            isInitialized = true;
+        } else {
+            return;
+        }
+
+        if (!enabled) {
+            return;
+        }
+
+        declaredIndexes().forEach((entityClass, indexes) -> {
+            for (Index index:indexes) {
+                String indexName = indexName(index);
+                creationStatus.put(indexName, "pending");
+                reactiveMongoTemplate.indexOps(entityClass)
+                        .ensureIndex(index)
+                        .subscribe(
+                            name -> {
+                                LOGGER.debug("index ensured: {}", name);
+                                creationStatus.put(indexName, "created");
+                            },
+                            throwable -> {
+                                LOGGER.error("failed to create index {}: {}", indexName, throwable.getMessage());
+                                creationStatus.put(indexName, "failed: " + throwable.getMessage());
+                            });
+            }
+        });
+    }
+
+    /**
+     * Compare the declared indexes against those present in each collection,
+     * an index is reported unused if it was never accessed since the last restart
+     * of the MongoDB server (see $indexStats)
+     */
+    public Mono<Map<String, Object>> report() {
+        return Flux.fromIterable(declaredIndexes().entrySet())
+                .concatMap(entry -> reportCollection(entry.getKey(), entry.getValue()))
+                .collectMap(
+                        collectionReport -> (String) collectionReport.get("collection"),
+                        collectionReport -> (Object) collectionReport,
+                        LinkedHashMap::new);
+    }
+
+    private Mono<Map<String, Object>> reportCollection(Class<?> entityClass, List<Index> declared) {
+        Mono<Set<String>> presentMono = reactiveMongoTemplate.indexOps(entityClass)
+                .getIndexInfo()
+                .map(IndexInfo::getName)
+                .collect(TreeSet::new, Set::add);
+
+        Mono<Set<String>> unusedMono = reactiveMongoTemplate
+                .execute(entityClass, collection -> collection.aggregate(
+                        Collections.singletonList(new Document("$indexStats", new Document()))))
+                .filter(indexStats -> !ID_INDEX.equals(indexStats.getString("name")))
+                .filter(indexStats -> {
+                    Document accesses = indexStats.get("accesses", Document.class);
+                    return accesses == null || ((Number) accesses.get("ops")).longValue() == 0;
+                })
+                .map(indexStats -> indexStats.getString("name"))
+                .collect(TreeSet::new, Set::add);
+
+        return Mono.zip(presentMono, unusedMono).map(tuple -> {
+            Set<String> declaredNames = new TreeSet<>();
+            Map<String, String> status = new LinkedHashMap<>();
+            for (Index index:declared) {
+                String indexName = indexName(index);
+                declaredNames.add(indexName);
+                status.put(indexName, creationStatus.getOrDefault(indexName, "not requested"));
+            }
+
+            Set<String> missing = new TreeSet<>(declaredNames);
+            missing.removeAll(tuple.getT1());
+
+            Map<String, Object> collectionReport = new LinkedHashMap<>();
+            collectionReport.put("collection", reactiveMongoTemplate.getCollectionName(entityClass));
+            collectionReport.put("declared", status);
+            collectionReport.put("present", tuple.getT1());
+            collectionReport.put("missing", missing);
+            collectionReport.put("unused", tuple.getT2());
+            return collectionReport;
+        });
+    }
+
+    private static String indexName(Index index) {
+        return index.getIndexOptions().getString("name");
+    }
+
+}
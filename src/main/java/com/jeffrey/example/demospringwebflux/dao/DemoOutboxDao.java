@@ -0,0 +1,51 @@
+package com.jeffrey.example.demospringwebflux.dao;
+
+import com.jeffrey.example.demospringwebflux.entity.DemoOutboxEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+
+@Component
+public class DemoOutboxDao {
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public Flux<DemoOutboxEntity> createOutboxEntities(Collection<DemoOutboxEntity> outboxEntities) {
+        // single insertMany round-trip regardless of the number of records
+        return reactiveMongoTemplate.insertAll(outboxEntities);
+    }
+
+    /**
+     * Read the oldest records which are not yet dispatched to the broker
+     */
+    public Flux<DemoOutboxEntity> readPendingOutboxEntities(int limit) {
+        Query query = Query.query(Criteria.where(DemoOutboxEntity.DISPATCHED_ON).is(null))
+                .with(Sort.by(Sort.Direction.ASC, DemoOutboxEntity.CREATED_ON))
+                .limit(limit);
+        return reactiveMongoTemplate.find(query, DemoOutboxEntity.class);
+    }
+
+    public Mono<Long> markDispatched(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(0L);
+        }
+
+        Instant dispatchedOn = ZonedDateTime.now().toInstant();
+        Query query = Query.query(Criteria.where(DemoOutboxEntity.ID).in(ids));
+        return reactiveMongoTemplate
+                .updateMulti(query, Update.update(DemoOutboxEntity.DISPATCHED_ON, dispatchedOn), DemoOutboxEntity.class)
+                .map(updateResult -> updateResult.getModifiedCount());
+    }
+
+}
@@ -2,16 +2,44 @@ package com.jeffrey.example.demospringwebflux.dao;
 
 import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
 import com.jeffrey.example.demospringwebflux.repository.DemoRxRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Component
 @EnableReactiveMongoRepositories(basePackageClasses = DemoRxRepository.class)
@@ -21,35 +49,152 @@ public class DemoRxDao {
     @Autowired
     DemoRxRepository demoRxRepository;
 
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Value("${demo.bulk.chunk-size:500}")
+    int bulkChunkSize;
+
+    @Value("${demo.bulk.max-in-flight-chunks:4}")
+    int bulkMaxInFlightChunks;
+
+    @Value("${demo.bulk.ordered:false}")
+    boolean bulkOrdered;
+
     public Mono<DemoEntity> createDemoEntity(DemoEntity demoEntity) {
+        demoEntity.setUpdatedOn(Instant.now());
         return demoRxRepository.save(demoEntity);
     }
 
-    public Flux<DemoEntity> createDemoEntities(Iterable<DemoEntity> demoEntities) {
-        final AtomicInteger i = new AtomicInteger(0);
-        Flux<DemoEntity> savedEntitiesFlux = Flux.fromIterable(demoEntities)
-                                                .flatMap(demoEntity -> {
-                                                    /**
-                                                     * Ordering of the flattened values: this operator does not necessarily
-                                                     * preserve original ordering, as inner element are flattened as they
-                                                     * arrive.
-                                                     *
-                                                     * See also:
-                                                     * https://projectreactor.io/docs/core/release/api/reactor/core/publisher/Flux.html#flatMap-java.util.function.Function-
-                                                     */
-                                                    LOGGER.debug("saving entity: " + demoEntity.toString());
-                                                    return demoRxRepository.save(demoEntity);
-                                                                        // Simulate exception thrown during individual write to DB!
-//                                                                        .map(_demoEntity -> {
-//                                                                            if (i.addAndGet(1)%2 == 0) {
-//                                                                                demoRxRepository.delete(_demoEntity).subscribe();
-//                                                                                throw new RuntimeException("error writing to DB: " + _demoEntity.toString());
-//                                                                            }
-//                                                                            return _demoEntity;
-//                                                                        }).onErrorStop();
-                                                });
-
-        return savedEntitiesFlux;
+    /**
+     * Idempotent write of the entities with a single unordered bulk write,
+     * entity without id will be assigned one before it is written.
+     */
+    public Flux<DemoEntity> upsertDemoEntities(List<DemoEntity> demoEntities) {
+        if (demoEntities.isEmpty()) {
+            return Flux.empty();
+        }
+
+        Instant updatedOn = Instant.now();
+        List<WriteModel<Document>> writeModels = new ArrayList<>(demoEntities.size());
+        for (DemoEntity demoEntity:demoEntities) {
+            if (demoEntity.getId() == null) {
+                demoEntity.setId(new ObjectId().toHexString());
+            }
+            demoEntity.setUpdatedOn(updatedOn);
+            Document document = new Document();
+            reactiveMongoTemplate.getConverter().write(demoEntity, document);
+            writeModels.add(new ReplaceOneModel<>(
+                    Filters.eq("_id", document.get("_id")),
+                    document,
+                    new ReplaceOptions().upsert(true)));
+        }
+
+        return reactiveMongoTemplate
+                .execute(DemoEntity.class, collection -> collection.bulkWrite(writeModels, new BulkWriteOptions().ordered(false)))
+                .doOnNext(bulkWriteResult -> LOGGER.debug("bulk upsert result: {}", bulkWriteResult))
+                .thenMany(Flux.fromIterable(demoEntities));
+    }
+
+    public Flux<DemoBulkWriteResult> createDemoEntities(Iterable<DemoEntity> demoEntities) {
+        return createDemoEntities(Flux.fromIterable(demoEntities), bulkOrdered);
+    }
+
+    public Flux<DemoBulkWriteResult> createDemoEntities(Flux<DemoEntity> demoEntities) {
+        return createDemoEntities(demoEntities, bulkOrdered);
+    }
+
+    /**
+     * Group the incoming entities into chunks and write each chunk with a single
+     * insertMany, at most {@code bulkMaxInFlightChunks} chunks are written concurrently
+     * which also bounds the demand requested from the upstream.
+     *
+     * When ordered, the results are emitted in the same order as the input and each
+     * chunk stops at the first failed write, the remaining entities of that chunk are
+     * reported as failed. Otherwise the writes are unordered and the results of the
+     * chunks are emitted as they complete.
+     *
+     * A failed write never terminates the stream, it is reported in the result of
+     * the individual entity so partial failures still return the saved entities.
+     */
+    public Flux<DemoBulkWriteResult> createDemoEntities(Flux<DemoEntity> demoEntities, boolean ordered) {
+        Flux<Tuple2<Long, List<DemoEntity>>> chunks = demoEntities.buffer(bulkChunkSize).index();
+
+        if (ordered) {
+            return chunks.flatMapSequential(chunk ->
+                    insertChunk(chunk.getT1() * bulkChunkSize, chunk.getT2(), true), bulkMaxInFlightChunks);
+        } else {
+            return chunks.flatMap(chunk ->
+                    insertChunk(chunk.getT1() * bulkChunkSize, chunk.getT2(), false), bulkMaxInFlightChunks);
+        }
+    }
+
+    private Flux<DemoBulkWriteResult> insertChunk(long offset, List<DemoEntity> chunk, boolean ordered) {
+        Instant updatedOn = Instant.now();
+        List<Document> documents = new ArrayList<>(chunk.size());
+        for (DemoEntity demoEntity:chunk) {
+            // assign the id upfront so the saved entity can be reported without reading it back
+            if (demoEntity.getId() == null) {
+                demoEntity.setId(new ObjectId().toHexString());
+            }
+            demoEntity.setUpdatedOn(updatedOn);
+            Document document = new Document();
+            reactiveMongoTemplate.getConverter().write(demoEntity, document);
+            documents.add(document);
+        }
+
+        LOGGER.debug("saving chunk of {} entities at offset {}", chunk.size(), offset);
+        return reactiveMongoTemplate
+                .execute(DemoEntity.class, collection -> collection.insertMany(documents, new InsertManyOptions().ordered(ordered)))
+                .then(Mono.fromCallable(() -> chunkResults(offset, chunk, Collections.emptyMap(), chunk.size())))
+                .onErrorResume(MongoBulkWriteException.class, e -> {
+                    Map<Integer, String> writeErrors = new HashMap<>();
+                    for (BulkWriteError writeError:e.getWriteErrors()) {
+                        writeErrors.put(writeError.getIndex(), writeError.getMessage());
+                    }
+                    // an ordered insert stops at the first error, nothing after it was attempted
+                    int attempted = ordered && !e.getWriteErrors().isEmpty() ?
+                            e.getWriteErrors().get(0).getIndex() + 1 : chunk.size();
+                    return Mono.just(chunkResults(offset, chunk, writeErrors, attempted));
+                })
+                .onErrorResume(throwable -> {
+                    LOGGER.error("error writing chunk at offset {}: {}", offset, throwable.getMessage());
+                    List<DemoBulkWriteResult> results = new ArrayList<>(chunk.size());
+                    for (int i=0; i<chunk.size(); i++) {
+                        results.add(DemoBulkWriteResult.failure(offset + i, chunk.get(i), throwable.getMessage()));
+                    }
+                    return Mono.just(results);
+                })
+                .flatMapIterable(results -> results);
+    }
+
+    private static List<DemoBulkWriteResult> chunkResults(
+            long offset,
+            List<DemoEntity> chunk,
+            Map<Integer, String> writeErrors,
+            int attempted)
+    {
+        List<DemoBulkWriteResult> results = new ArrayList<>(chunk.size());
+        for (int i=0; i<chunk.size(); i++) {
+            if (writeErrors.containsKey(i)) {
+                results.add(DemoBulkWriteResult.failure(offset + i, chunk.get(i), writeErrors.get(i)));
+            } else if (i >= attempted) {
+                results.add(DemoBulkWriteResult.failure(offset + i, chunk.get(i), "not attempted, ordered bulk write stopped at previous error"));
+            } else {
+                results.add(DemoBulkWriteResult.success(offset + i, chunk.get(i)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param fields the projection, null to read the whole entities
+     */
+    public Flux<DemoEntity> readAllDemoEntities(String sortBy, DemoEntityFields fields) {
+        if (fields == null) {
+            return readAllDemoEntities(sortBy);
+        }
+        return reactiveMongoTemplate.find(fields.project(DemoEntityCursor.sortQuery(sortBy), sortBy), DemoEntity.class);
     }
 
     public Flux<DemoEntity> readAllDemoEntities(String sortBy) {
@@ -68,6 +213,70 @@ public class DemoRxDao {
         }
     }
 
+    /**
+     * Read a page of entities with keyset pagination, see {@link DemoEntityCursor}
+     *
+     * @param continuation token of the previous page, null or empty for the first page
+     */
+    public Mono<DemoEntityPage> readDemoEntitiesPage(String sortBy, String continuation, int limit) {
+        return readDemoEntitiesPage(sortBy, continuation, limit, null);
+    }
+
+    /**
+     * @param fields the projection, null to read the whole entities
+     */
+    public Mono<DemoEntityPage> readDemoEntitiesPage(String sortBy, String continuation, int limit, DemoEntityFields fields) {
+        return Mono.fromCallable(() -> continuation==null || continuation.isEmpty() ?
+                        Optional.<DemoEntityCursor>empty() : Optional.of(DemoEntityCursor.decode(continuation, sortBy)))
+                .map(cursor -> DemoEntityCursor.pageQuery(sortBy, cursor.orElse(null), limit))
+                .flatMap(query -> reactiveMongoTemplate
+                        .find(fields == null ? query : fields.project(query, sortBy), DemoEntity.class)
+                        .collectList())
+                .map(entities -> DemoEntityCursor.toPage(sortBy, entities, limit));
+    }
+
+    /**
+     * Tail the change stream of the collection, emitting every entity inserted or
+     * replaced from now on, or right after the change of the resume token.
+     *
+     * Change streams require MongoDB running as a replica set (a single-node replica
+     * set is sufficient).
+     *
+     * @param resumeToken token of the last change received, null to start from now
+     * @throws IllegalArgumentException if the resume token is malformed
+     */
+    public Flux<DemoEntityChange> watchDemoEntities(String resumeToken) {
+        ChangeStreamOptions.ChangeStreamOptionsBuilder optionsBuilder = ChangeStreamOptions.builder()
+                .filter(Aggregation.newAggregation(
+                        Aggregation.match(Criteria.where("operationType").in(Arrays.asList("insert", "replace")))));
+
+        if (resumeToken != null && !resumeToken.isEmpty()) {
+            optionsBuilder.resumeAfter(decodeResumeToken(resumeToken));
+        }
+
+        return reactiveMongoTemplate
+                .changeStream(reactiveMongoTemplate.getCollectionName(DemoEntity.class), optionsBuilder.build(), DemoEntity.class)
+                .filter(event -> event.getBody() != null)
+                .map(event -> new DemoEntityChange(
+                        encodeResumeToken(event.getResumeToken()),
+                        event.getOperationType() == null ? null : event.getOperationType().getValue(),
+                        event.getBody()));
+    }
+
+    private static String encodeResumeToken(BsonValue resumeToken) {
+        String json = resumeToken.asDocument().toJson();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BsonDocument decodeResumeToken(String resumeToken) {
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(resumeToken), StandardCharsets.UTF_8);
+            return BsonDocument.parse(json);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("malformed resume token", e);
+        }
+    }
+
     public Mono<DemoEntity> readDemoEntityById(String id) {
         return demoRxRepository.findById(id);
     }
@@ -0,0 +1,46 @@
+package com.jeffrey.example.demospringwebflux.endpoint;
+
+import com.jeffrey.example.demospringwebflux.util.DemoConsumerHooks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Switch the per-message hooks of the consumer interceptor at runtime
+ *
+ * curl -i -X GET "http://localhost:8081/actuator/demoConsumerHooks"
+ * curl -i -X POST "http://localhost:8081/actuator/demoConsumerHooks" -H "Content-Type: application/json" -d '{"enabled":true,"sampleRate":100}'
+ */
+@Component
+@Endpoint(id = "demoConsumerHooks")
+public class DemoConsumerHooksEndpoint {
+
+    @Autowired
+    DemoConsumerHooks consumerHooks;
+
+    @ReadOperation
+    public Map<String, Object> hooks() {
+        Map<String, Object> hooks = new LinkedHashMap<>();
+        hooks.put("enabled", consumerHooks.isEnabled());
+        hooks.put("sampleRate", consumerHooks.getSampleRate());
+        return hooks;
+    }
+
+    @WriteOperation
+    public Map<String, Object> configure(@Nullable Boolean enabled, @Nullable Integer sampleRate) {
+        if (sampleRate != null) {
+            consumerHooks.setSampleRate(sampleRate);
+        }
+        if (enabled != null) {
+            consumerHooks.setEnabled(enabled);
+        }
+        return hooks();
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.jeffrey.example.demospringwebflux.endpoint;
+
+import com.jeffrey.example.demospringwebflux.dao.DemoIndexManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Report the declared, present, missing and unused indexes of each collection
+ *
+ * curl -i -X GET "http://localhost:8081/actuator/demoIndexes"
+ */
+@Component
+@Endpoint(id = "demoIndexes")
+public class DemoIndexEndpoint {
+
+    @Autowired
+    DemoIndexManager demoIndexManager;
+
+    @ReadOperation
+    public Mono<Map<String, Object>> indexes() {
+        return demoIndexManager.report();
+    }
+
+}
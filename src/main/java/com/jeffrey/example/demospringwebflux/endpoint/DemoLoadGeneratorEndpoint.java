@@ -0,0 +1,50 @@
+package com.jeffrey.example.demospringwebflux.endpoint;
+
+import com.jeffrey.example.demospringwebflux.util.DemoLoadGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Change the rate, payload size and burst size of the supplierRx1 load generator at runtime
+ *
+ * curl -i -X GET "http://localhost:8081/actuator/demoLoadGenerator"
+ * curl -i -X POST "http://localhost:8081/actuator/demoLoadGenerator" -H "Content-Type: application/json" -d '{"ratePerSecond":1000,"payloadSize":512,"burstSize":10}'
+ */
+@Component
+@Endpoint(id = "demoLoadGenerator")
+public class DemoLoadGeneratorEndpoint {
+
+    @Autowired
+    DemoLoadGenerator demoLoadGenerator;
+
+    @ReadOperation
+    public Map<String, Object> generator() {
+        Map<String, Object> generator = new LinkedHashMap<>();
+        generator.put("ratePerSecond", demoLoadGenerator.getRatePerSecond());
+        generator.put("payloadSize", demoLoadGenerator.getPayloadSize());
+        generator.put("burstSize", demoLoadGenerator.getBurstSize());
+        return generator;
+    }
+
+    @WriteOperation
+    public Map<String, Object> configure(@Nullable Double ratePerSecond, @Nullable Integer payloadSize, @Nullable Integer burstSize) {
+        if (ratePerSecond != null) {
+            demoLoadGenerator.setRatePerSecond(ratePerSecond);
+        }
+        if (payloadSize != null) {
+            demoLoadGenerator.setPayloadSize(payloadSize);
+        }
+        if (burstSize != null) {
+            demoLoadGenerator.setBurstSize(burstSize);
+        }
+        return generator();
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.jeffrey.example.demospringwebflux.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -13,6 +14,7 @@ public class DemoEntity {
     public static final String ID = "id";
     public static final String CREATED_ON = "createdOn";
     public static final String DATA = "data";
+    public static final String UPDATED_ON = "updatedOn";
 
     @Id
     @JsonProperty(ID)
@@ -24,6 +26,10 @@ public class DemoEntity {
     @JsonProperty(DATA)
     private String data;
 
+    // stamped by the DAO on every write, not part of the API
+    @JsonIgnore
+    private Instant updatedOn;
+
     private DemoEntity() {
         this.createdOn = ZonedDateTime.now().toInstant();
     }
@@ -37,8 +43,28 @@ public class DemoEntity {
         return String.format("id: %s, createdOn: %s, data: %s", id, createdOn.toString(), data);
     }
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Instant getCreatedOn() {
+        return createdOn;
+    }
+
     public String getData() {
         return data;
     }
 
+    public Instant getUpdatedOn() {
+        return updatedOn;
+    }
+
+    public void setUpdatedOn(Instant updatedOn) {
+        this.updatedOn = updatedOn;
+    }
+
 }
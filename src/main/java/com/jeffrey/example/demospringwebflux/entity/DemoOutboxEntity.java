@@ -0,0 +1,75 @@
+package com.jeffrey.example.demospringwebflux.entity;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+
+/**
+ * Outbox record which carries the entity together with the name of the
+ * output binding it should be published to, both are written in a single
+ * document so the DB write and the pending message are atomic.
+ */
+@Document(collection = "DemoOutbox") // specify the name of the collection in MongoDB
+public class DemoOutboxEntity {
+
+    public static final String ID = "id";
+    public static final String BINDING_NAME = "bindingName";
+    public static final String DEMO_ENTITY = "demoEntity";
+    public static final String CREATED_ON = "createdOn";
+    public static final String DISPATCHED_ON = "dispatchedOn";
+
+    @Id
+    @JsonProperty(ID)
+    private String id;
+
+    @JsonProperty(BINDING_NAME)
+    private String bindingName;
+
+    @JsonProperty(DEMO_ENTITY)
+    private DemoEntity demoEntity;
+
+    @JsonProperty(CREATED_ON)
+    private Instant createdOn;
+
+    @JsonProperty(DISPATCHED_ON)
+    private Instant dispatchedOn;
+
+    private DemoOutboxEntity() {
+        this.createdOn = ZonedDateTime.now().toInstant();
+    }
+
+    public DemoOutboxEntity(String bindingName, DemoEntity demoEntity) {
+        this();
+        this.bindingName = bindingName;
+        this.demoEntity = demoEntity;
+    }
+
+    public String toString() {
+        return String.format("id: %s, bindingName: %s, createdOn: %s, dispatchedOn: %s, demoEntity: [%s]",
+                id, bindingName, createdOn, dispatchedOn, demoEntity);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getBindingName() {
+        return bindingName;
+    }
+
+    public DemoEntity getDemoEntity() {
+        return demoEntity;
+    }
+
+    public Instant getCreatedOn() {
+        return createdOn;
+    }
+
+    public Instant getDispatchedOn() {
+        return dispatchedOn;
+    }
+
+}
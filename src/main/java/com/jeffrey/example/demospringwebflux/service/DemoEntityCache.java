@@ -0,0 +1,63 @@
+package com.jeffrey.example.demospringwebflux.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-process cache of entities by id, shared by the blocking and the
+ * reactive service.
+ *
+ * Entries are evicted by size and by time since written, and invalidated when
+ * an entity event is received by cacheInvalidationRx0 (on every node) so stale entries do not outlive
+ * a change made through another node. Absent entities are never cached.
+ *
+ * Hit, miss and eviction metrics are published under the cache name "demoEntity".
+ */
+public class DemoEntityCache implements MeterBinder {
+
+    private final Cache<String, DemoEntity> cache;
+
+    /**
+     * @param maximumSize maximum number of entries, zero disables the cache
+     * @param expireAfterWriteSeconds time to live of an entry
+     */
+    public DemoEntityCache(long maximumSize, long expireAfterWriteSeconds) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    public DemoEntity get(String id) {
+        return id == null ? null : cache.getIfPresent(id);
+    }
+
+    public void put(DemoEntity demoEntity) {
+        if (demoEntity.getId() != null) {
+            cache.put(demoEntity.getId(), demoEntity);
+        }
+    }
+
+    public void invalidate(String id) {
+        if (id != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        GuavaCacheMetrics.monitor(meterRegistry, cache, "demoEntity");
+    }
+
+}
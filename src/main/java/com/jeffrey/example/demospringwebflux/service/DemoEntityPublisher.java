@@ -0,0 +1,310 @@
+package com.jeffrey.example.demospringwebflux.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.jeffrey.example.demospringwebflux.config.DemoMessageConverterConfig;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import com.jeffrey.example.demospringwebflux.util.DemoMessageHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.stream.binder.rabbit.properties.RabbitBindingProperties;
+import org.springframework.cloud.stream.config.BindingServiceProperties;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.core.env.Environment;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publish entities to an output binding, in place of StreamBridge.send on the request path.
+ *
+ * The output channel and the writer of the contentType of each binding are resolved once,
+ * the entity is serialized by the cached writer and sent to the channel as bytes, instead
+ * of looking up the binding and converting the payload on every send. A binding without
+ * an output channel bean (e.g. not yet bound) falls back to StreamBridge.
+ *
+ * In async mode the messages are queued in a bounded queue and sent in batches of up to
+ * batch-size by a single publisher thread, lingering up to linger-ms for a batch to fill,
+ * so the request thread only pays for an enqueue. The rabbit producer batching of the
+ * binding must be enabled, it coalesces the messages of a batch into one broker publish,
+ * without it the publisher thread would only publish one message after the other. The
+ * future of each message completes once the message is handed to the binder, or
+ * exceptionally with a RejectedExecutionException when the queue is full.
+ */
+@Service
+public class DemoEntityPublisher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DemoEntityPublisher.class);
+
+    @Autowired
+    BeanFactory beanFactory;
+
+    @Autowired
+    BindingServiceProperties bindingServiceProperties;
+
+    @Autowired
+    StreamBridge streamBridge;
+
+    @Autowired
+    ObjectMapper jsonMapper;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    Environment environment;
+
+    @Value("${demo.publisher.async:false}")
+    boolean async;
+
+    @Value("${demo.publisher.binding-name:supplier2-out-0}")
+    String bindingName;
+
+    @Value("${demo.publisher.queue-capacity:10000}")
+    int queueCapacity;
+
+    @Value("${demo.publisher.batch-size:100}")
+    int batchSize;
+
+    @Value("${demo.publisher.linger-ms:5}")
+    long lingerMs;
+
+    private final Map<String, PublishTarget> targets = new ConcurrentHashMap<>();
+
+    private BlockingQueue<PendingMessage> queue;
+    private volatile Thread publisherThread;
+
+    private Counter publishedCounter;
+    private Counter failedCounter;
+    private Counter rejectedCounter;
+    private DistributionSummary batchSizeSummary;
+
+    @PostConstruct
+    void init() {
+        publishedCounter = Counter.builder("demo.publisher.published")
+                .description("number of messages handed to the binder")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("demo.publisher.failed")
+                .description("number of messages failed to send")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("demo.publisher.rejected")
+                .description("number of messages rejected because the publisher queue is full")
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("demo.publisher.batch.size")
+                .description("number of messages sent per batch in async mode")
+                .register(meterRegistry);
+
+        if (!async) {
+            return;
+        }
+        verifyProducerBatching(bindingName);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("demo.publisher.queue.depth", queue, BlockingQueue::size)
+                .description("number of messages waiting for the publisher thread")
+                .register(meterRegistry);
+
+        LOGGER.debug("publisher - async, queue capacity: {}, batch size: {}, linger: {}ms", queueCapacity, batchSize, lingerMs);
+        publisherThread = new Thread(this::drain, "demoEntityPublisher");
+        publisherThread.setDaemon(true);
+        publisherThread.start();
+    }
+
+    @PreDestroy
+    void close() {
+        Thread thread = publisherThread;
+        publisherThread = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Refuse to start in async mode when the binder would publish the batches one message at a time
+     */
+    private void verifyProducerBatching(String bindingName) {
+        boolean batchingEnabled = Binder.get(environment)
+                .bind("spring.cloud.stream.rabbit.bindings", Bindable.mapOf(String.class, RabbitBindingProperties.class))
+                .map(bindings -> bindings.get(bindingName))
+                .map(bindingProperties -> bindingProperties.getProducer().isBatchingEnabled())
+                .orElse(false);
+        if (!batchingEnabled) {
+            throw new IllegalStateException(
+                    "demo.publisher.async requires batchingEnabled on the rabbit producer of the binding " + bindingName);
+        }
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Publish to the binding of demo.publisher.binding-name
+     */
+    public CompletableFuture<Boolean> publish(DemoEntity demoEntity) {
+        return publish(bindingName, demoEntity);
+    }
+
+    /**
+     * The future completes with the result of the send, in the caller thread unless async
+     */
+    public CompletableFuture<Boolean> publish(String bindingName, DemoEntity demoEntity) {
+        if (!async) {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            send(bindingName, demoEntity, future);
+            return future;
+        }
+
+        PendingMessage pendingMessage = new PendingMessage(bindingName, demoEntity);
+        if (!queue.offer(pendingMessage)) {
+            rejectedCounter.increment();
+            pendingMessage.future.completeExceptionally(new RejectedExecutionException("publisher queue is full"));
+        }
+        return pendingMessage.future;
+    }
+
+    private void drain() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        try {
+            while (publisherThread == Thread.currentThread()) {
+                PendingMessage first = queue.take();
+                batch.add(first);
+
+                // wait up to the linger time for the batch to fill
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingMessage next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                batchSizeSummary.record(batch.size());
+                for (PendingMessage pendingMessage:batch) {
+                    send(pendingMessage.bindingName, pendingMessage.demoEntity, pendingMessage.future);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // nothing will send the remaining messages once stopped
+            queue.drainTo(batch);
+            batch.forEach(pendingMessage -> pendingMessage.future.completeExceptionally(
+                    new RejectedExecutionException("publisher is stopped")));
+            LOGGER.debug("publisher - stopped, {} messages not sent", batch.size());
+        }
+    }
+
+    private void send(String bindingName, DemoEntity demoEntity, CompletableFuture<Boolean> future) {
+        try {
+            PublishTarget target = targets.computeIfAbsent(bindingName, this::resolveTarget);
+            boolean sent;
+            if (target.channel == null) {
+                // resolve again on the next send, the binding may have been created by this one
+                targets.remove(bindingName);
+                sent = streamBridge.send(bindingName, MessageBuilder.withPayload(demoEntity)
+                        .setHeader(AmqpHeaders.MESSAGE_ID, messageId())
+                        .build());
+            } else {
+                Message<byte[]> message = MessageBuilder
+                        .withPayload(target.writer.writeValueAsBytes(demoEntity))
+                        .setHeader(MessageHeaders.CONTENT_TYPE, target.contentType)
+                        .setHeader(AmqpHeaders.MESSAGE_ID, messageId())
+                        .build();
+                sent = target.channel.send(message);
+            }
+
+            if (sent) {
+                publishedCounter.increment();
+            } else {
+                failedCounter.increment();
+            }
+            future.complete(sent);
+        } catch (Exception e) {
+            LOGGER.error("publisher - failed to send to {}: {}", bindingName, e.getMessage());
+            failedCounter.increment();
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * The messages of a producer batch all carry the properties of the batch, a message id
+     * would then be shared by every message of the batch and the consumers would drop all
+     * but the first one as duplicates, hence messages sent in async mode have none
+     */
+    private String messageId() {
+        return async ? null : DemoMessageHeaders.newMessageId();
+    }
+
+    private PublishTarget resolveTarget(String bindingName) {
+        MimeType contentType = MimeType.valueOf(bindingServiceProperties.getBindingProperties(bindingName).getContentType());
+        ObjectWriter writer;
+        if (DemoMessageConverterConfig.APPLICATION_CBOR.equalsTypeAndSubtype(contentType)) {
+            writer = DemoMessageConverterConfig.cborObjectMapper().writerFor(DemoEntity.class);
+        } else if (DemoMessageConverterConfig.APPLICATION_SMILE.equalsTypeAndSubtype(contentType)) {
+            writer = DemoMessageConverterConfig.smileObjectMapper().writerFor(DemoEntity.class);
+        } else {
+            contentType = MimeTypeUtils.APPLICATION_JSON;
+            writer = jsonMapper.writerFor(DemoEntity.class);
+        }
+
+        MessageChannel channel = beanFactory.containsBean(bindingName) ?
+                beanFactory.getBean(bindingName, MessageChannel.class) : null;
+        LOGGER.debug("publisher - binding: {}, contentType: {}, channel resolved: {}", bindingName, contentType, channel != null);
+        return new PublishTarget(channel, writer, contentType);
+    }
+
+    private static class PublishTarget {
+        final MessageChannel channel;
+        final ObjectWriter writer;
+        final MimeType contentType;
+
+        PublishTarget(MessageChannel channel, ObjectWriter writer, MimeType contentType) {
+            this.channel = channel;
+            this.writer = writer;
+            this.contentType = contentType;
+        }
+    }
+
+    private static class PendingMessage {
+        final String bindingName;
+        final DemoEntity demoEntity;
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        PendingMessage(String bindingName, DemoEntity demoEntity) {
+            this.bindingName = bindingName;
+            this.demoEntity = demoEntity;
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+package com.jeffrey.example.demospringwebflux.service;
+
+import com.jeffrey.example.demospringwebflux.dao.DemoOutboxDao;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import com.jeffrey.example.demospringwebflux.entity.DemoOutboxEntity;
+import com.jeffrey.example.demospringwebflux.util.DemoMessageHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox for the supplierRx0 output binding.
+ *
+ * Instead of writing the entity to DB and sending the message to the broker
+ * on the request path (see DemoAspect), the entity and its pending message
+ * are written to the outbox collection in a single insert. The relay then
+ * drains the outbox in batches: persist the entities, publish the messages
+ * to the output binding with bounded concurrency and mark them dispatched.
+ *
+ * Delivery is at-least-once, a record which failed to publish stays pending
+ * and will be retried by the next relay cycle.
+ */
+@Service
+public class DemoOutboxService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DemoOutboxService.class);
+
+    @Autowired
+    DemoOutboxDao demoOutboxDao;
+
+    @Autowired
+    DemoRxService demoRxService;
+
+    @Autowired
+    StreamBridge streamBridge;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${demo.outbox.enabled:false}")
+    boolean enabled;
+
+    @Value("${demo.outbox.binding-name:supplierRx0-out-0}")
+    String bindingName;
+
+    @Value("${demo.outbox.batch-size:100}")
+    int batchSize;
+
+    @Value("${demo.outbox.concurrency:4}")
+    int concurrency;
+
+    @Value("${demo.outbox.poll-interval-ms:500}")
+    long pollIntervalMs;
+
+    private Counter enqueuedCounter;
+    private Counter relayedCounter;
+    private Counter failedCounter;
+
+    // age of the oldest pending record observed by the last relay cycle
+    private final AtomicLong relayLagMillis = new AtomicLong(0);
+
+    private volatile Disposable relay;
+
+    @PostConstruct
+    void registerMetrics() {
+        enqueuedCounter = Counter.builder("demo.outbox.enqueued")
+                .description("number of records written to the outbox")
+                .register(meterRegistry);
+        relayedCounter = Counter.builder("demo.outbox.relayed")
+                .description("number of records published to the broker by the relay")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("demo.outbox.failed")
+                .description("number of records failed to publish and left pending for retry")
+                .register(meterRegistry);
+        Gauge.builder("demo.outbox.lag", relayLagMillis, lag -> lag.get() / 1000.0)
+                .description("age in seconds of the oldest pending record in the outbox")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Mono<DemoEntity> enqueue(DemoEntity demoEntity) {
+        return enqueueAll(Collections.singletonList(demoEntity)).next();
+    }
+
+    public Flux<DemoEntity> enqueueAll(Iterable<DemoEntity> demoEntities) {
+        List<DemoOutboxEntity> outboxEntities = new ArrayList<>();
+        for (DemoEntity demoEntity:demoEntities) {
+            // assign the id upfront so the relay can write the entity idempotently
+            if (demoEntity.getId() == null) {
+                demoEntity.setId(new ObjectId().toHexString());
+            }
+            outboxEntities.add(new DemoOutboxEntity(bindingName, demoEntity));
+        }
+
+        return demoOutboxDao.createOutboxEntities(outboxEntities)
+                .doOnNext(outboxEntity -> {
+                    LOGGER.debug("outbox - enqueued: {}", outboxEntity);
+                    enqueuedCounter.increment();
+                })
+                .map(DemoOutboxEntity::getDemoEntity);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    protected synchronized void startRelay() {
+        if (!enabled || relay != null) { // prevents spring framework double-fire application ready event
+            return;
+        }
+
+        LOGGER.debug("outbox - starting relay, batch size: {}, concurrency: {}", batchSize, concurrency);
+        relay = Flux.interval(Duration.ofMillis(pollIntervalMs))
+                .onBackpressureDrop()
+                .concatMap(tick -> relayBatch()
+                        // keep draining without waiting for next tick as long as a full batch is dispatched,
+                        // a batch failed to publish (e.g. broker down) waits for the next tick to retry
+                        .expand(dispatchedCount -> dispatchedCount == batchSize ? relayBatch() : Mono.empty())
+                        .onErrorResume(throwable -> {
+                            LOGGER.error("outbox - relay error: {}", throwable.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    protected synchronized void stopRelay() {
+        if (relay != null) {
+            relay.dispose();
+            relay = null;
+        }
+    }
+
+    /**
+     * Drain a single batch from the outbox, emits the number of records dispatched
+     */
+    Mono<Long> relayBatch() {
+        return demoOutboxDao.readPendingOutboxEntities(batchSize)
+                .collectList()
+                .flatMap(outboxEntities -> {
+                    relayLagMillis.set(outboxEntities.isEmpty() ? 0 :
+                            Duration.between(outboxEntities.get(0).getCreatedOn(), Instant.now()).toMillis());
+
+                    if (outboxEntities.isEmpty()) {
+                        return Mono.just(0L);
+                    }
+
+                    List<DemoEntity> demoEntities = outboxEntities.stream()
+                            .map(DemoOutboxEntity::getDemoEntity)
+                            .collect(Collectors.toList());
+
+                    return demoRxService.upsertDemoEntities(demoEntities)
+                            .thenMany(Flux.fromIterable(outboxEntities).flatMap(this::publish, concurrency))
+                            .collectList()
+                            .flatMap(demoOutboxDao::markDispatched);
+                });
+    }
+
+    private Mono<String> publish(DemoOutboxEntity outboxEntity) {
+        Message<DemoEntity> message = MessageBuilder
+                .withPayload(outboxEntity.getDemoEntity())
+                .setHeader(DemoMessageHeaders.OUTBOX_ID, outboxEntity.getId())
+                // a relay retried after a crash publishes the same record again under the same id
+                .setHeader(AmqpHeaders.MESSAGE_ID, outboxEntity.getId())
+                .setHeader(DemoMessageHeaders.EMIT_TIMESTAMP, DemoMessageHeaders.currentTimeMicros())
+                .build();
+
+        // StreamBridge send is blocking, keep it off the relay thread
+        return Mono.fromCallable(() -> streamBridge.send(outboxEntity.getBindingName(), message))
+                .subscribeOn(Schedulers.elastic())
+                .flatMap(sent -> {
+                    if (sent) {
+                        relayedCounter.increment();
+                        return Mono.just(outboxEntity.getId());
+                    }
+                    failedCounter.increment();
+                    return Mono.<String>empty();
+                })
+                .onErrorResume(throwable -> {
+                    LOGGER.error("outbox - failed to publish {}: {}", outboxEntity.getId(), throwable.getMessage());
+                    failedCounter.increment();
+                    return Mono.empty();
+                });
+    }
+
+}
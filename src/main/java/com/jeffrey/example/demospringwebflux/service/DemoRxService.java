@@ -1,5 +1,9 @@
 package com.jeffrey.example.demospringwebflux.service;
 
+import com.jeffrey.example.demospringwebflux.dao.DemoBulkWriteResult;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityChange;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityFields;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityPage;
 import com.jeffrey.example.demospringwebflux.dao.DemoRxDao;
 import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,26 +11,63 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @Service
 public class DemoRxService {
 
     @Autowired
     DemoRxDao demoRxDao;
 
+    @Autowired
+    DemoEntityCache demoEntityCache;
+
     public Mono<DemoEntity> createDemoEntity(DemoEntity demoEntity) {
-        return demoRxDao.createDemoEntity(demoEntity);
+        return demoRxDao.createDemoEntity(demoEntity)
+                .doOnNext(savedEntity -> demoEntityCache.invalidate(savedEntity.getId()));
+    }
+
+    public Flux<DemoBulkWriteResult> createDemoEntities(Iterable<DemoEntity> demoEntities) {
+        return demoRxDao.createDemoEntities(demoEntities);
     }
 
-    public Flux<DemoEntity> createDemoEntities(Iterable<DemoEntity> demoEntities) {
+    public Flux<DemoBulkWriteResult> createDemoEntities(Flux<DemoEntity> demoEntities) {
         return demoRxDao.createDemoEntities(demoEntities);
     }
 
+    public Flux<DemoEntity> upsertDemoEntities(List<DemoEntity> demoEntities) {
+        return demoRxDao.upsertDemoEntities(demoEntities)
+                .doOnNext(savedEntity -> demoEntityCache.invalidate(savedEntity.getId()));
+    }
+
     public Flux<DemoEntity> readAllDemoEntities(String sortBy) {
         return demoRxDao.readAllDemoEntities(sortBy);
     }
 
+    public Flux<DemoEntity> readAllDemoEntities(String sortBy, DemoEntityFields fields) {
+        return demoRxDao.readAllDemoEntities(sortBy, fields);
+    }
+
+    public Mono<DemoEntityPage> readDemoEntitiesPage(String sortBy, String continuation, int limit) {
+        return demoRxDao.readDemoEntitiesPage(sortBy, continuation, limit);
+    }
+
+    public Mono<DemoEntityPage> readDemoEntitiesPage(String sortBy, String continuation, int limit, DemoEntityFields fields) {
+        return demoRxDao.readDemoEntitiesPage(sortBy, continuation, limit, fields);
+    }
+
+    public Flux<DemoEntityChange> watchDemoEntities(String resumeToken) {
+        return demoRxDao.watchDemoEntities(resumeToken);
+    }
+
     public Mono<DemoEntity> readDemoEntityById(String id) {
-        return demoRxDao.readDemoEntityById(id);
+        return Mono.defer(() -> {
+            DemoEntity cachedEntity = demoEntityCache.get(id);
+            if (cachedEntity != null) {
+                return Mono.just(cachedEntity);
+            }
+            return demoRxDao.readDemoEntityById(id).doOnNext(demoEntityCache::put);
+        });
     }
 
 }
@@ -1,8 +1,11 @@
 package com.jeffrey.example.demospringwebflux.service;
 
 import com.jeffrey.example.demospringwebflux.dao.DemoDao;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityFields;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityPage;
 import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
@@ -14,16 +17,52 @@ public class DemoService {
     @Autowired
     DemoDao demoDao;
 
+    @Autowired
+    DemoEntityCache demoEntityCache;
+
     public DemoEntity createDemoEntity(DemoEntity demoEntity) {
-        return demoDao.createDemoEntity(demoEntity);
+        DemoEntity savedEntity = demoDao.createDemoEntity(demoEntity);
+        demoEntityCache.invalidate(savedEntity.getId());
+        return savedEntity;
     }
 
     public Collection<DemoEntity> readAllDemoEntities(String sortBy) {
         return demoDao.readAllDemoEntities(sortBy);
     }
 
+    public Collection<DemoEntity> readAllDemoEntities(String sortBy, DemoEntityFields fields) {
+        return demoDao.readAllDemoEntities(sortBy, fields);
+    }
+
+    public CloseableIterator<DemoEntity> streamAllDemoEntities(String sortBy, int batchSize, DemoEntityFields fields) {
+        return demoDao.streamAllDemoEntities(sortBy, batchSize, fields);
+    }
+
+    public DemoEntityPage readDemoEntitiesPage(String sortBy, String continuation, int limit) {
+        return demoDao.readDemoEntitiesPage(sortBy, continuation, limit);
+    }
+
+    public DemoEntityPage readDemoEntitiesPage(String sortBy, String continuation, int limit, DemoEntityFields fields) {
+        return demoDao.readDemoEntitiesPage(sortBy, continuation, limit, fields);
+    }
+
+    public long countDemoEntities() {
+        return demoDao.countDemoEntities();
+    }
+
+    public Optional<DemoEntity> readLastModifiedDemoEntity() {
+        return demoDao.readLastModifiedDemoEntity();
+    }
+
     public Optional<DemoEntity> readDemoEntityById(String id) {
-        return demoDao.readDemoEntityById(id);
+        DemoEntity cachedEntity = demoEntityCache.get(id);
+        if (cachedEntity != null) {
+            return Optional.of(cachedEntity);
+        }
+
+        Optional<DemoEntity> demoEntityOptional = demoDao.readDemoEntityById(id);
+        demoEntityOptional.ifPresent(demoEntityCache::put);
+        return demoEntityOptional;
     }
 
 }
@@ -0,0 +1,265 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Execute blocking calls (e.g. the blocking DemoService) from a reactive handler.
+ *
+ * - DIRECT: the call runs on the subscribing thread, i.e. the request thread of the server
+ * - BULKHEAD: the call runs on a dedicated pool of bounded size and queue, when both are
+ *   full the call is rejected immediately with a RejectedExecutionException, so a slow
+ *   dependency can only ever hold the threads of this pool and never the server threads
+ * - VIRTUAL: every call runs on its own virtual thread (JDK 21+), a blocked call only holds
+ *   its virtual thread so the plain blocking code scales to many concurrent calls, the
+ *   concurrency is then bounded by the database (e.g. the connection pool of the driver)
+ */
+public class DemoBlockingExecutor implements MeterBinder, Disposable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DemoBlockingExecutor.class);
+
+    public enum Mode { DIRECT, BULKHEAD, VIRTUAL }
+
+    private final String name;
+    private final Mode mode;
+    private final ExecutorService executor;
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public DemoBlockingExecutor(String name, Mode mode, int poolSize, int queueCapacity) {
+        this.name = name;
+        this.mode = mode;
+        switch (mode) {
+            case BULKHEAD:
+                this.executor = newBoundedExecutor(name, poolSize, queueCapacity);
+                break;
+            case VIRTUAL:
+                this.executor = newVirtualThreadPerTaskExecutor();
+                break;
+            default:
+                this.executor = null;
+        }
+    }
+
+    /**
+     * Looked up by reflection as the source level of the project predates virtual threads,
+     * fail at startup rather than silently falling back to platform threads
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("virtual threads require JDK 21+, running on " + System.getProperty("java.version"), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("cannot create the virtual thread executor", e);
+        }
+    }
+
+    private ThreadPoolExecutor newBoundedExecutor(String name, int poolSize, int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(
+                poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory,
+                (runnable, threadPoolExecutor) -> {
+                    rejectedCount.incrementAndGet();
+                    throw new RejectedExecutionException(name + " is saturated");
+                });
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Defer the blocking call until subscription, a null result completes the mono empty
+     */
+    public <T> Mono<T> call(Callable<T> callable) {
+        if (executor == null) {
+            return Mono.fromCallable(callable);
+        }
+
+        return Mono.create(sink -> {
+            Future<?> future;
+            try {
+                future = executor.submit(() -> {
+                    activeCount.incrementAndGet();
+                    try {
+                        sink.success(callable.call());
+                    } catch (Throwable throwable) {
+                        sink.error(throwable);
+                    } finally {
+                        activeCount.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("{} - rejected, active: {}", name, activeCount.get());
+                sink.error(e);
+                return;
+            }
+            // a cancelled request (e.g. client disconnected) frees its queue slot right away, a
+            // cancelled task would otherwise stay queued until a thread takes it. A call already
+            // running is not interrupted, the blocking driver may not survive an interrupt
+            sink.onCancel(() -> {
+                future.cancel(false);
+                removeQueued((Runnable) future);
+            });
+        });
+    }
+
+    /**
+     * Run a blocking source read over many requests (e.g. a cursor) as a single call, admitted
+     * once at subscription: the source holds one thread of the executor until it terminates and
+     * every request and the cancel are served on that thread, so it may be rejected like a call when subscribed
+     * but never once started. Should the executor be shut down meanwhile, the source is cancelled
+     * (e.g. its cursor is closed) and the flux fails with a RejectedExecutionException.
+     */
+    public <T> Flux<T> stream(Flux<T> source) {
+        if (executor == null) {
+            return source;
+        }
+
+        return Flux.defer(() -> {
+            StreamWorker worker = new StreamWorker();
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("{} - rejected stream, active: {}", name, activeCount.get());
+                return Flux.error(e);
+            }
+            return source
+                    .subscribeOn(Schedulers.fromExecutor(worker))
+                    .takeUntilOther(worker.interrupted)
+                    .concatWith(Mono.defer(() -> worker.interrupted.isTerminated() ?
+                            Mono.error(new RejectedExecutionException(name + " is shut down")) :
+                            Mono.empty()))
+                    // a cancel (e.g. client disconnected) is queued on the worker like the requests,
+                    // the source is never closed while it is being read
+                    .cancelOn(Schedulers.fromExecutor(worker))
+                    // the queue slot is freed right away if the stream ends before it started
+                    .doFinally(signalType -> {
+                        worker.release();
+                        removeQueued(worker);
+                    });
+        });
+    }
+
+    private void removeQueued(Runnable task) {
+        if (executor instanceof ThreadPoolExecutor) {
+            ((ThreadPoolExecutor) executor).remove(task);
+        }
+    }
+
+    /**
+     * Serves the requests of one stream on the thread it was admitted to, until released
+     */
+    private final class StreamWorker implements Runnable, Executor {
+        private final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+        private final MonoProcessor<Boolean> interrupted = MonoProcessor.create();
+        private final Runnable releaseTask = () -> {};
+        private volatile boolean stopped;
+
+        @Override
+        public void execute(Runnable task) {
+            if (stopped) {
+                throw new RejectedExecutionException(name + " stream is stopped");
+            }
+            tasks.add(task);
+        }
+
+        @Override
+        public void run() {
+            activeCount.incrementAndGet();
+            try {
+                for (Runnable task = tasks.take(); task != releaseTask; task = tasks.take()) {
+                    task.run();
+                }
+            } catch (InterruptedException e) {
+                stopped = true;
+                interrupted.onNext(Boolean.TRUE);
+            } finally {
+                stopped = true;
+                activeCount.decrementAndGet();
+            }
+        }
+
+        void release() {
+            tasks.add(releaseTask);
+        }
+
+        /**
+         * Never started, e.g. still queued when the executor is shut down
+         */
+        void abort() {
+            stopped = true;
+            interrupted.onNext(Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        if (executor == null) {
+            return;
+        }
+        Gauge.builder("demo.blocking.active", activeCount, AtomicInteger::get)
+                .description("number of blocking calls being executed")
+                .tag("name", name)
+                .tag("mode", mode.name())
+                .register(meterRegistry);
+        if (executor instanceof ThreadPoolExecutor) {
+            Gauge.builder("demo.blocking.queued", (ThreadPoolExecutor) executor, threadPoolExecutor -> threadPoolExecutor.getQueue().size())
+                    .description("number of blocking calls waiting for a thread")
+                    .tag("name", name)
+                    .tag("mode", mode.name())
+                    .register(meterRegistry);
+        }
+        FunctionCounter.builder("demo.blocking.rejected", rejectedCount, AtomicLong::get)
+                .description("number of blocking calls rejected because the pool and its queue are full")
+                .tag("name", name)
+                .tag("mode", mode.name())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void dispose() {
+        if (executor != null) {
+            for (Runnable task:executor.shutdownNow()) {
+                if (task instanceof StreamWorker) {
+                    ((StreamWorker) task).abort();
+                }
+            }
+        }
+    }
+
+}
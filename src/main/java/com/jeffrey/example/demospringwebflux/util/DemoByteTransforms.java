@@ -0,0 +1,78 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+/**
+ * Transforms of raw message payloads, applied on the bytes without decoding
+ * them into a String.
+ *
+ * The double quote is a single ASCII byte in UTF-8, which never occurs inside
+ * the encoding of a multi-byte character, so the payload can be scanned byte
+ * by byte. The only allocation is the resulting array, and none at all when
+ * the payload is returned unchanged.
+ */
+public final class DemoByteTransforms {
+
+    private static final byte DOUBLE_QUOTE = '"';
+
+    private DemoByteTransforms() {}
+
+    /**
+     * Surround the payload with double quotes
+     */
+    public static byte[] wrapDoubleQuotes(byte[] value) {
+        byte[] wrapped = new byte[value.length + 2];
+        wrapped[0] = DOUBLE_QUOTE;
+        System.arraycopy(value, 0, wrapped, 1, value.length);
+        wrapped[wrapped.length - 1] = DOUBLE_QUOTE;
+        return wrapped;
+    }
+
+    /**
+     * Remove every double quote of the payload, the same array is returned if there is none
+     */
+    public static byte[] unwrapDoubleQuotes(byte[] value) {
+        int quotes = 0;
+        for (byte b:value) {
+            if (b == DOUBLE_QUOTE) quotes++;
+        }
+        if (quotes == 0) {
+            return value;
+        }
+
+        byte[] unwrapped = new byte[value.length - quotes];
+        int index = 0;
+        for (byte b:value) {
+            if (b != DOUBLE_QUOTE) unwrapped[index++] = b;
+        }
+        return unwrapped;
+    }
+
+    /**
+     * Same as {@link #unwrapDoubleQuotes(byte[])} for a String payload, without the regex of String.replaceAll
+     */
+    public static String unwrapDoubleQuotes(String value) {
+        int first = value.indexOf(DOUBLE_QUOTE);
+        if (first < 0) {
+            return value;
+        }
+
+        StringBuilder unwrapped = new StringBuilder(value.length() - 1);
+        unwrapped.append(value, 0, first);
+        for (int i=first+1; i<value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != DOUBLE_QUOTE) unwrapped.append(c);
+        }
+        return unwrapped.toString();
+    }
+
+    /**
+     * Same as {@link #wrapDoubleQuotes(byte[])} for a String payload, without the format parsing of String.format
+     */
+    public static String wrapDoubleQuotes(String value) {
+        return new StringBuilder(value.length() + 2)
+                .append('"')
+                .append(value)
+                .append('"')
+                .toString();
+    }
+
+}
@@ -14,6 +14,18 @@ public class DemoConsumerAdviceInvocator {
         });
     }
 
+    /**
+     * The operator is assembled once per stream, each message then only pays for
+     * the sampling decision of the hooks unless it is sampled
+     */
+    public static Flux<?> invokeReactive(Flux<?> inputFlux, DemoConsumerHooks hooks) {
+        return inputFlux.doOnNext(value -> {
+            if (hooks.sample()) {
+                invoke(value);
+            }
+        });
+    }
+
 //    @SuppressWarnings("unchecked")
 //    public Flux<R> interceptStreams(Flux<R> inputFlux) {
 //        return (Flux<R>) invokeReactive(inputFlux);
@@ -0,0 +1,53 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runtime switch of the per-message hooks of the consumer interceptor.
+ *
+ * The hooks can be disabled or sampled (1 in sampleRate messages) at runtime,
+ * a message is only handed to the hooks when {@link #sample()} returns true,
+ * which costs a volatile read when disabled and never allocates.
+ */
+public class DemoConsumerHooks {
+
+    private volatile boolean enabled;
+    private volatile int sampleRate;
+
+    public DemoConsumerHooks(boolean enabled, int sampleRate) {
+        this.enabled = enabled;
+        setSampleRate(sampleRate);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("sample rate must be at least 1: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Whether the current message should be handed to the hooks
+     */
+    public boolean sample() {
+        if (!enabled) {
+            return false;
+        }
+        int rate = sampleRate;
+        // thread local random avoids contending on a shared counter between consumer threads
+        return rate == 1 || ThreadLocalRandom.current().nextInt(rate) == 0;
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bounded set of the most recently seen message keys, to drop redelivered
+ * messages before they are processed again.
+ *
+ * Keys are stored as 64-bit hashes in a primitive open-addressing table, with a
+ * ring buffer of insertion order evicting the oldest key once the capacity is
+ * reached, so the memory is fixed at 24 to 40 bytes per key of capacity.
+ * Unlike a Bloom filter the hashes are compared exactly, a new message is only
+ * mistaken for a duplicate on a full 64-bit hash collision.
+ */
+public class DemoDuplicateFilter implements MeterBinder {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    // zero marks an empty slot of the table
+    private static final long EMPTY = 0L;
+
+    private final String name;
+    private final int capacity;
+    private final long[] table;
+    private final long[] ring;
+    private int ringIndex;
+    private int size;
+
+    private long checkedCount;
+    private long duplicateCount;
+
+    /**
+     * @param capacity number of most recent keys remembered, zero disables the filter
+     */
+    public DemoDuplicateFilter(String name, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        }
+        this.name = name;
+        this.capacity = capacity;
+        // keep the load factor at or below 0.5 for short probe sequences
+        this.table = new long[capacity == 0 ? 0 : Integer.highestOneBit(capacity * 4 - 1)];
+        this.ring = new long[capacity];
+    }
+
+    /**
+     * Whether the key has been seen recently, without remembering it
+     */
+    public synchronized boolean isDuplicate(String key) {
+        if (key == null || capacity == 0) {
+            return false;
+        }
+        checkedCount++;
+        if (indexOf(hash(key)) >= 0) {
+            duplicateCount++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remember the key, e.g. once the message has been processed successfully
+     */
+    public synchronized void markSeen(String key) {
+        if (key == null || capacity == 0) {
+            return;
+        }
+        long hash = hash(key);
+        if (indexOf(hash) < 0) {
+            add(hash);
+        }
+    }
+
+    /**
+     * Remember the key and return true if it has not been seen recently,
+     * false if the message is a duplicate
+     */
+    public synchronized boolean markFirstSeen(String key) {
+        if (key == null || capacity == 0) {
+            return true;
+        }
+        checkedCount++;
+        long hash = hash(key);
+        if (indexOf(hash) >= 0) {
+            duplicateCount++;
+            return false;
+        }
+        add(hash);
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void add(long hash) {
+        if (size == capacity) {
+            // the slot about to be overwritten holds the oldest key
+            remove(ring[ringIndex]);
+        } else {
+            size++;
+        }
+        ring[ringIndex] = hash;
+        ringIndex = (ringIndex + 1) % capacity;
+
+        int mask = table.length - 1;
+        int i = slot(hash);
+        while (table[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        table[i] = hash;
+    }
+
+    private int indexOf(long hash) {
+        int mask = table.length - 1;
+        int i = slot(hash);
+        while (table[i] != EMPTY) {
+            if (table[i] == hash) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Linear probing removal, shift back the following entries of the probe
+     * sequence instead of leaving a tombstone
+     */
+    private void remove(long hash) {
+        int i = indexOf(hash);
+        if (i < 0) {
+            return;
+        }
+        int mask = table.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (table[j] == EMPTY) {
+                break;
+            }
+            int k = slot(table[j]);
+            // the entry at j stays if its home slot k lies cyclically within (i, j]
+            boolean stays = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+            if (!stays) {
+                table[i] = table[j];
+                i = j;
+            }
+        }
+        table[i] = EMPTY;
+    }
+
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & (table.length - 1);
+    }
+
+    private static long hash(String key) {
+        long hash = HASH_FUNCTION.hashString(key, StandardCharsets.UTF_8).asLong();
+        return hash == EMPTY ? 1L : hash;
+    }
+
+    private synchronized long checkedCount() {
+        return checkedCount;
+    }
+
+    private synchronized long duplicateCount() {
+        return duplicateCount;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("demo.consumer.dedup.checked", this, DemoDuplicateFilter::checkedCount)
+                .description("number of message keys checked for duplicates")
+                .tag("name", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("demo.consumer.dedup.duplicates", this, DemoDuplicateFilter::duplicateCount)
+                .description("number of messages dropped as duplicates")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("demo.consumer.dedup.occupancy", this, filter -> filter.capacity == 0 ? 0 : (double) filter.size() / filter.capacity)
+                .description("ratio of the filter capacity in use")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+}
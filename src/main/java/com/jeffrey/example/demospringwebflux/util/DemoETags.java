@@ -0,0 +1,104 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityFields;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityPage;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Strong entity tags derived from the content of the entities.
+ *
+ * Every write stamps the updatedOn of the entity and entities are never deleted, hence
+ * the tag of a collection can be derived from its size and its last modified entity
+ * without reading the collection, the size only has to be estimated since any write
+ * changes the last modified entity anyway.
+ */
+public final class DemoETags {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private DemoETags() {}
+
+    public static String of(DemoEntity demoEntity) {
+        return of(demoEntity, null);
+    }
+
+    /**
+     * Tag of the partial entity, only the given fields are hashed
+     */
+    public static String of(DemoEntity demoEntity, DemoEntityFields fields) {
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        putFields(hasher, fields);
+        putEntity(hasher, demoEntity, fields);
+        return hasher.hash().toString();
+    }
+
+    public static String of(DemoEntityPage demoEntityPage) {
+        return of(demoEntityPage, null);
+    }
+
+    public static String of(DemoEntityPage demoEntityPage, DemoEntityFields fields) {
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        putFields(hasher, fields);
+        for (DemoEntity demoEntity:demoEntityPage.getItems()) {
+            putEntity(hasher, demoEntity, fields);
+        }
+        putNullable(hasher, demoEntityPage.getContinuation());
+        return hasher.hash().toString();
+    }
+
+    /**
+     * @param lastModifiedEntity the most recently written entity, null if the collection is empty
+     */
+    public static String ofCollection(String sortBy, long count, DemoEntity lastModifiedEntity) {
+        return ofCollection(sortBy, null, count, lastModifiedEntity);
+    }
+
+    /**
+     * @param fields the fields of the partial entities, null for the whole entities
+     */
+    public static String ofCollection(String sortBy, DemoEntityFields fields, long count, DemoEntity lastModifiedEntity) {
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        putNullable(hasher, sortBy);
+        putFields(hasher, fields);
+        hasher.putLong(count);
+        if (lastModifiedEntity != null) {
+            putEntity(hasher, lastModifiedEntity, null);
+            hasher.putLong(lastModifiedEntity.getUpdatedOn() == null ? 0 : lastModifiedEntity.getUpdatedOn().toEpochMilli());
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void putFields(Hasher hasher, DemoEntityFields fields) {
+        // nothing is hashed for the whole entity, so its tags stay the same as before projections
+        if (fields != null) {
+            putNullable(hasher, fields.toString());
+        }
+    }
+
+    private static void putEntity(Hasher hasher, DemoEntity demoEntity, DemoEntityFields fields) {
+        if (fields == null || fields.includes(DemoEntity.ID)) {
+            putNullable(hasher, demoEntity.getId());
+        }
+        if (fields == null || fields.includes(DemoEntity.CREATED_ON)) {
+            hasher.putLong(demoEntity.getCreatedOn() == null ? 0 : demoEntity.getCreatedOn().toEpochMilli());
+        }
+        if (fields == null || fields.includes(DemoEntity.DATA)) {
+            putNullable(hasher, demoEntity.getData());
+        }
+    }
+
+    private static void putNullable(Hasher hasher, String value) {
+        if (value == null) {
+            hasher.putInt(-1);
+        } else {
+            // length prefix prevents ambiguity between adjacent fields
+            hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+        }
+    }
+
+}
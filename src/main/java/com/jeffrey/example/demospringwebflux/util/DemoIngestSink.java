@@ -0,0 +1,179 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bridge values produced by any number of concurrent producers (e.g. request
+ * threads) into a single backpressure-aware stream.
+ *
+ * Values are buffered in a bounded queue and only emitted to the subscriber as
+ * it requests them, so a slow subscriber (e.g. the broker) never grows the
+ * memory without bound. When the queue is full the value is handled according
+ * to the overflow policy:
+ * - REJECT: the value is rejected immediately
+ * - DROP_OLDEST: the oldest buffered value is dropped to make room
+ * - BLOCK: the producer waits for room up to the block timeout, then the value is rejected
+ */
+public class DemoIngestSink<T> implements MeterBinder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DemoIngestSink.class);
+
+    public enum OverflowPolicy { REJECT, DROP_OLDEST, BLOCK }
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final Duration blockTimeout;
+    private final Flux<T> flux;
+
+    // serialize the drain loop between producers and subscriber requests
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile FluxSink<T> downstream;
+
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    public DemoIngestSink(String name, int capacity, OverflowPolicy overflowPolicy, Duration blockTimeout) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeout = blockTimeout;
+        this.flux = Flux.<T>create(sink -> {
+            downstream = sink;
+            sink.onDispose(() -> {
+                if (downstream == sink) downstream = null;
+            });
+            sink.onRequest(requested -> drain());
+        }, FluxSink.OverflowStrategy.ERROR).share();
+    }
+
+    public Flux<T> asFlux() {
+        return flux;
+    }
+
+    /**
+     * Emit the value without blocking the caller, the returned mono emits false if the
+     * value is rejected. The value is offered on a separate thread if the producer may
+     * have to wait for room (BLOCK).
+     */
+    public Mono<Boolean> emit(T value) {
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            return Mono.fromCallable(() -> tryEmit(value)).subscribeOn(Schedulers.elastic());
+        }
+        return Mono.fromCallable(() -> tryEmit(value));
+    }
+
+    /**
+     * Emit a value that must not be dropped (e.g. already persisted) waiting for room up to
+     * the block timeout whatever the overflow policy, on a separate thread, the returned mono
+     * emits false if there is still no room. Other values are never dropped to make room for it.
+     */
+    public Mono<Boolean> emitAwait(T value) {
+        return Mono.fromCallable(() -> onOffer(offerAwait(value))).subscribeOn(Schedulers.elastic());
+    }
+
+    /**
+     * Emit the value in the caller thread, returns false if the value is rejected.
+     * This may block the caller up to the block timeout with the BLOCK overflow policy.
+     */
+    public boolean tryEmit(T value) {
+        boolean accepted;
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                while (!queue.offer(value)) {
+                    if (queue.poll() != null) {
+                        droppedCount.incrementAndGet();
+                    }
+                }
+                accepted = true;
+                break;
+            case BLOCK:
+                accepted = offerAwait(value);
+                break;
+            default:
+                accepted = queue.offer(value);
+        }
+        return onOffer(accepted);
+    }
+
+    private boolean offerAwait(T value) {
+        try {
+            return queue.offer(value, blockTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean onOffer(boolean accepted) {
+        if (accepted) {
+            acceptedCount.incrementAndGet();
+            drain();
+        } else {
+            LOGGER.debug("{} - rejected, queue depth: {}", name, queue.size());
+            rejectedCount.incrementAndGet();
+        }
+        return accepted;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
+            FluxSink<T> sink = downstream;
+            if (sink != null) {
+                while (sink.requestedFromDownstream() > 0) {
+                    T value = queue.poll();
+                    if (value == null) {
+                        break;
+                    }
+                    sink.next(value);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        Gauge.builder("demo.ingest.queue.depth", queue, BlockingQueue::size)
+                .description("number of values buffered waiting for the subscriber")
+                .tag("name", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("demo.ingest.accepted", acceptedCount, AtomicLong::get)
+                .tag("name", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("demo.ingest.rejected", rejectedCount, AtomicLong::get)
+                .description("number of values rejected because the queue is full")
+                .tag("name", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("demo.ingest.dropped", droppedCount, AtomicLong::get)
+                .description("number of buffered values dropped to make room for newer ones")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.data.util.CloseableIterator;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+
+/**
+ * Write the elements of a cursor as a JSON array, one buffer per batch of elements.
+ *
+ * The cursor is only read when the subscriber requests the next buffer, so at most one
+ * batch is held in memory whatever the number of elements, and the first batch is sent
+ * before the last element is read. The cursor is closed on completion, error or cancel.
+ */
+public final class DemoJsonArrayStream {
+
+    private DemoJsonArrayStream() {}
+
+    public static <T> Flux<DataBuffer> of(
+            Callable<CloseableIterator<T>> cursorSupplier,
+            ObjectWriter writer,
+            DataBufferFactory bufferFactory,
+            int batchSize)
+    {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batch size must be positive: " + batchSize);
+        }
+        // the buffer output stream must stay open between the elements
+        ObjectWriter elementWriter = writer.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        return Flux.using(cursorSupplier, cursor ->
+                Flux.<DataBuffer, Boolean>generate(() -> Boolean.TRUE, (first, sink) -> {
+                    DataBuffer buffer = bufferFactory.allocateBuffer();
+                    try {
+                        OutputStream out = buffer.asOutputStream();
+                        if (first) {
+                            out.write('[');
+                        }
+                        boolean firstElement = first;
+                        for (int i=0; i<batchSize && cursor.hasNext(); i++) {
+                            if (!firstElement) {
+                                out.write(',');
+                            }
+                            elementWriter.writeValue(out, cursor.next());
+                            firstElement = false;
+                        }
+                        if (!cursor.hasNext()) {
+                            out.write(']');
+                            sink.next(buffer);
+                            sink.complete();
+                        } else {
+                            sink.next(buffer);
+                        }
+                        return firstElement;
+                    } catch (IOException | RuntimeException e) {
+                        DataBufferUtils.release(buffer);
+                        sink.error(e);
+                        return first;
+                    }
+                }),
+                CloseableIterator::close);
+    }
+
+}
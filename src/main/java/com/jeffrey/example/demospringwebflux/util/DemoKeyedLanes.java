@@ -0,0 +1,95 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Process a stream on a fixed number of lanes, each lane running on its own
+ * single-threaded scheduler.
+ *
+ * Every value is routed to a lane by the hash of its key, so values sharing a
+ * key are always processed in order on the same thread, while values of
+ * unrelated keys are processed concurrently on the other lanes.
+ */
+public class DemoKeyedLanes<T> implements MeterBinder, Disposable {
+
+    private final String name;
+    private final Function<? super T, ?> keyExtractor;
+    private final Scheduler[] schedulers;
+    private final AtomicInteger[] depths;
+
+    public DemoKeyedLanes(String name, int laneCount, Function<? super T, ?> keyExtractor) {
+        if (laneCount <= 0) {
+            throw new IllegalArgumentException("lane count must be positive: " + laneCount);
+        }
+        this.name = name;
+        this.keyExtractor = keyExtractor;
+        this.schedulers = new Scheduler[laneCount];
+        this.depths = new AtomicInteger[laneCount];
+        for (int i=0; i<laneCount; i++) {
+            // daemon threads, a lane never holds the JVM open on shutdown
+            this.schedulers[i] = Schedulers.newSingle(name + "-lane-" + i, true);
+            this.depths[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Apply the handler to every value on the lane of its key, the resulting flux
+     * interleaves the lanes and only preserves the order of values of the same key
+     */
+    public <R> Flux<R> process(Flux<T> source, Function<? super T, ? extends R> handler) {
+        // flatMap must subscribe every lane (group) at once, otherwise groupBy stalls
+        return source
+                .groupBy(this::laneOf)
+                .flatMap(lane -> {
+                    int index = lane.key();
+                    AtomicInteger depth = depths[index];
+                    return lane
+                            .doOnNext(value -> depth.incrementAndGet())
+                            .publishOn(schedulers[index], Queues.SMALL_BUFFER_SIZE)
+                            .map(value -> {
+                                depth.decrementAndGet();
+                                return handler.apply(value);
+                            });
+                }, schedulers.length);
+    }
+
+    public int laneCount() {
+        return schedulers.length;
+    }
+
+    int laneOf(T value) {
+        int hash = Objects.hashCode(keyExtractor.apply(value));
+        // spread the high bits, String and ObjectId hashes differ mostly in the low ones
+        return Math.floorMod(hash ^ (hash >>> 16), schedulers.length);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        for (int i=0; i<depths.length; i++) {
+            Gauge.builder("demo.consumer.lane.depth", depths[i], AtomicInteger::get)
+                    .description("number of values queued on the lane waiting to be processed")
+                    .tag("name", name)
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        for (Scheduler scheduler:schedulers) {
+            scheduler.dispose();
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timer driven generator of synthetic messages at a target rate.
+ *
+ * Every tick adds rate x tick of credits, the accumulated credits are emitted as
+ * whole bursts of burstSize messages, so a burst size of 1 spreads the messages
+ * evenly over the ticks while a larger one emits them in spikes at the same
+ * average rate. No thread is held between ticks.
+ *
+ * The rate, payload size and burst size can be changed while the stream is running.
+ * Ticks that cannot be emitted because the subscriber is not keeping up are dropped
+ * and counted, the generator then falls behind the target rate instead of buffering.
+ * The messages are emitted on the bounded elastic scheduler, the subscriber may block.
+ */
+public class DemoLoadGenerator implements MeterBinder {
+
+    private final String name;
+    private final String text;
+    private final Duration tick;
+
+    private volatile double ratePerSecond;
+    private volatile int payloadSize;
+    private volatile int burstSize;
+    private volatile String payload;
+
+    private final AtomicLong emittedCount = new AtomicLong();
+    private final AtomicLong droppedTickCount = new AtomicLong();
+
+    /**
+     * @param text content of every message, padded or truncated to the payload size
+     * @param tick interval of the timer, the finest granularity of the emission
+     */
+    public DemoLoadGenerator(String name, String text, Duration tick, double ratePerSecond, int payloadSize, int burstSize) {
+        this.name = name;
+        this.text = text;
+        this.tick = tick;
+        setRatePerSecond(ratePerSecond);
+        setPayloadSize(payloadSize);
+        setBurstSize(burstSize);
+    }
+
+    public Flux<String> asFlux() {
+        return Flux.defer(() -> {
+            // credits accumulated by this subscription but not yet emitted
+            double[] credits = new double[1];
+            // the credits are computed on the timer thread, the messages are emitted on a worker
+            // so a blocking subscriber never delays the timer. Every stage requests one item at
+            // a time, a tick is dropped as soon as the subscriber has not taken the previous one
+            return Flux.interval(tick)
+                    .map(_tick -> creditsOf(credits))
+                    .filter(count -> count > 0)
+                    .onBackpressureDrop(dropped -> droppedTickCount.incrementAndGet())
+                    .publishOn(Schedulers.boundedElastic(), 1)
+                    .flatMapIterable(count -> Collections.nCopies(count, payload), 1)
+                    .doOnNext(value -> emittedCount.incrementAndGet());
+        });
+    }
+
+    private int creditsOf(double[] credits) {
+        double rate = ratePerSecond;
+        int burst = burstSize;
+        // never accumulate more than a second worth of messages, e.g. after the rate was lowered
+        credits[0] = Math.min(credits[0] + rate * tick.toNanos() / 1e9, Math.max(burst, rate));
+        if (credits[0] < burst) {
+            return 0;
+        }
+        int count = (int) (credits[0] / burst) * burst;
+        credits[0] -= count;
+        return count;
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public void setRatePerSecond(double ratePerSecond) {
+        if (ratePerSecond < 0) {
+            throw new IllegalArgumentException("rate must not be negative: " + ratePerSecond);
+        }
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    public int getPayloadSize() {
+        return payloadSize;
+    }
+
+    /**
+     * @param payloadSize number of characters of every message, zero keeps the text as is
+     */
+    public void setPayloadSize(int payloadSize) {
+        if (payloadSize < 0) {
+            throw new IllegalArgumentException("payload size must not be negative: " + payloadSize);
+        }
+        this.payload = payloadOf(text, payloadSize);
+        this.payloadSize = payloadSize;
+    }
+
+    public int getBurstSize() {
+        return burstSize;
+    }
+
+    public void setBurstSize(int burstSize) {
+        if (burstSize < 1) {
+            throw new IllegalArgumentException("burst size must be at least 1: " + burstSize);
+        }
+        this.burstSize = burstSize;
+    }
+
+    /**
+     * The payload is built once per size and shared by every message
+     */
+    private static String payloadOf(String text, int payloadSize) {
+        if (payloadSize == 0 || payloadSize == text.length()) {
+            return text;
+        }
+        if (payloadSize < text.length()) {
+            return text.substring(0, payloadSize);
+        }
+        StringBuilder payload = new StringBuilder(payloadSize).append(text);
+        while (payload.length() < payloadSize) {
+            payload.append('x');
+        }
+        return payload.toString();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("demo.generator.emitted", emittedCount, AtomicLong::get)
+                .description("number of messages emitted by the generator")
+                .tag("name", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("demo.generator.ticks.dropped", droppedTickCount, AtomicLong::get)
+                .description("number of ticks dropped because the subscriber was not keeping up")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+}
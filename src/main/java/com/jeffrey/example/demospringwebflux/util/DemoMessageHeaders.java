@@ -0,0 +1,44 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custom message header names shared between the suppliers, the
+ * outbound channel aspect and the consumers.
+ */
+public final class DemoMessageHeaders {
+
+    /**
+     * Set by the outbox relay on every message it publishes, the entity
+     * carried by such message has already been persisted by the relay.
+     */
+    public static final String OUTBOX_ID = "demoOutboxId";
+
+    /**
+     * Time the message was emitted by the supplier, in microseconds since the epoch,
+     * used by the consumer to measure the publish-to-consume latency
+     */
+    public static final String EMIT_TIMESTAMP = "demoEmitTimestamp";
+
+    private DemoMessageHeaders() {}
+
+    /**
+     * Identity of a message stamped by the producers as AmqpHeaders.MESSAGE_ID, mapped by the
+     * rabbit binder to the AMQP message-id property, used by the consumers to drop redeliveries
+     */
+    public static String newMessageId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Wall clock time in microseconds since the epoch, comparable between nodes
+     * (unlike System.nanoTime) as long as their clocks are synchronized
+     */
+    public static long currentTimeMicros() {
+        Instant now = Instant.now();
+        return TimeUnit.SECONDS.toMicros(now.getEpochSecond()) + TimeUnit.NANOSECONDS.toMicros(now.getNano());
+    }
+
+}
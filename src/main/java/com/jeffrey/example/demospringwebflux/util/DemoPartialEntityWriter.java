@@ -0,0 +1,57 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityFields;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write partial entities, only the requested fields of every DemoEntity are written whether
+ * the value is an entity, a collection of entities or a page, by a property filter applied
+ * while serializing the entities rather than copying each one into a map.
+ *
+ * The filter is only declared on a copy of the mapper, the application mapper still writes
+ * the whole entities. The writer of a set of fields is built once, there are only as many
+ * writers as combinations of fields.
+ */
+public class DemoPartialEntityWriter {
+
+    private static final String FILTER_ID = "demoEntityFields";
+
+    @JsonFilter(FILTER_ID)
+    private interface FilteredDemoEntity {}
+
+    private final ObjectMapper filteredMapper;
+    private final Map<String, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    public DemoPartialEntityWriter(ObjectMapper jsonMapper) {
+        this.filteredMapper = jsonMapper.copy().addMixIn(DemoEntity.class, FilteredDemoEntity.class);
+    }
+
+    public ObjectWriter writerFor(DemoEntityFields fields) {
+        return writers.computeIfAbsent(fields.toString(), key -> filteredMapper.writer(new SimpleFilterProvider()
+                .addFilter(FILTER_ID, SimpleBeanPropertyFilter.filterOutAllExcept(new HashSet<>(fields.getNames())))));
+    }
+
+    /**
+     * The partial JSON as a response body, written as is by the JSON encoder
+     */
+    public RawValue write(Object value, DemoEntityFields fields) {
+        try {
+            return new RawValue(writerFor(fields).writeValueAsString(value));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
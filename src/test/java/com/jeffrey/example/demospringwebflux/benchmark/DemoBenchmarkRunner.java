@@ -0,0 +1,34 @@
+package com.jeffrey.example.demospringwebflux.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark profile, runs every benchmark in this package
+ * (or those matching the first argument) and reports the throughput in ops/s
+ * together with the allocation per operation from the gc profiler.
+ *
+ * mvn -P benchmark verify
+ * mvn -P benchmark verify -Dbenchmark.include=DemoProcessorBenchmark
+ */
+public class DemoBenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 && !args[0].isEmpty() ?
+                args[0] : DemoBenchmarkRunner.class.getPackage().getName() + ".*Benchmark";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+
+        new Runner(options).run();
+    }
+
+}
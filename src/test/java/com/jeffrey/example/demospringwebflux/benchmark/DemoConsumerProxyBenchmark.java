@@ -0,0 +1,102 @@
+package com.jeffrey.example.demospringwebflux.benchmark;
+
+import com.jeffrey.example.demospringwebflux.config.DemoProxyConfig;
+import com.jeffrey.example.demospringwebflux.util.DemoConsumerHooks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Overhead of the consumerInterceptor advice from {@link DemoProxyConfig}
+ * compared to invoking the same consumer without the proxy, with the hooks
+ * disabled, sampled (1 in 100) and applied to every message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DemoConsumerProxyBenchmark {
+
+    private Consumer<String> consumer;
+
+    private Consumer<String> proxiedConsumer;
+
+    private Consumer<String> sampledConsumer;
+
+    private Consumer<String> hookedConsumer;
+
+    private LastValueConsumer target;
+
+    private String value;
+
+    @Setup
+    public void setUp() {
+        this.value = "abcdefghijklmnopqrstuvwxyz";
+        this.target = new LastValueConsumer();
+        this.consumer = target;
+
+        this.proxiedConsumer = proxy(target, new DemoConsumerHooks(false, 1));
+        this.sampledConsumer = proxy(target, new DemoConsumerHooks(true, 100));
+        this.hookedConsumer = proxy(target, new DemoConsumerHooks(true, 1));
+    }
+
+    /**
+     * Same proxy the consumerProxyCreator produces for the consumer beans
+     */
+    @SuppressWarnings("unchecked")
+    private static Consumer<String> proxy(Consumer<String> target, DemoConsumerHooks consumerHooks) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addAdvisor(DemoProxyConfig.consumerAdvisor(new DemoProxyConfig().consumerInterceptor(consumerHooks)));
+        return (Consumer<String>) proxyFactory.getProxy();
+    }
+
+    @Benchmark
+    public String unproxied() {
+        consumer.accept(value);
+        return target.lastValue;
+    }
+
+    @Benchmark
+    public String proxied() {
+        proxiedConsumer.accept(value);
+        return target.lastValue;
+    }
+
+    @Benchmark
+    public String proxiedSampled() {
+        sampledConsumer.accept(value);
+        return target.lastValue;
+    }
+
+    @Benchmark
+    public String proxiedHooked() {
+        hookedConsumer.accept(value);
+        return target.lastValue;
+    }
+
+    /**
+     * Keeps the last value so the call cannot be eliminated as dead code
+     */
+    private static class LastValueConsumer implements Consumer<String> {
+        private String lastValue;
+
+        @Override
+        public void accept(String value) {
+            this.lastValue = value;
+        }
+    }
+
+}
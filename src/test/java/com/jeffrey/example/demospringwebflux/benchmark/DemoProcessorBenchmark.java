@@ -0,0 +1,116 @@
+package com.jeffrey.example.demospringwebflux.benchmark;
+
+import com.jeffrey.example.demospringwebflux.bindings.DemoProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The transform functions of {@link DemoProcessor}, the reactive ones are
+ * measured over a batch of values so the per-element cost is not hidden
+ * behind the cost of assembling and subscribing the flux.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DemoProcessorBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private Function<Flux<String>, Flux<String>> wrapDoubleQuotes;
+
+    private Function<Flux<String>, Flux<String>> unwrapDoubleQuotes;
+
+    private Function<Flux<byte[]>, Flux<byte[]>> wrapDoubleQuotesBytes;
+
+    private Function<Flux<byte[]>, Flux<byte[]>> unwrapDoubleQuotesBytes;
+
+    private Function<String, String> toUpperCase;
+
+    private Function<String, String> toLowerCase;
+
+    private String value;
+
+    private String[] values;
+
+    private String[] quotedValues;
+
+    private byte[][] byteValues;
+
+    private byte[][] quotedByteValues;
+
+    @Setup
+    public void setUp() {
+        DemoProcessor demoProcessor = new DemoProcessor();
+        wrapDoubleQuotes = demoProcessor.wrapDoubleQuotes();
+        unwrapDoubleQuotes = demoProcessor.unwrapDoubleQuotes();
+        wrapDoubleQuotesBytes = demoProcessor.wrapDoubleQuotesBytes();
+        unwrapDoubleQuotesBytes = demoProcessor.unwrapDoubleQuotesBytes();
+        toUpperCase = demoProcessor.toUpperCase();
+        toLowerCase = demoProcessor.toLowerCase();
+
+        value = "abcdefghijklmnopqrstuvwxyz";
+        values = new String[BATCH_SIZE];
+        quotedValues = new String[BATCH_SIZE];
+        byteValues = new byte[BATCH_SIZE][];
+        quotedByteValues = new byte[BATCH_SIZE][];
+        for (int i=0; i<BATCH_SIZE; i++) {
+            values[i] = value + i;
+            quotedValues[i] = "\"" + values[i] + "\"";
+            byteValues[i] = values[i].getBytes(StandardCharsets.UTF_8);
+            quotedByteValues[i] = quotedValues[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void wrapDoubleQuotes(Blackhole blackhole) {
+        wrapDoubleQuotes.apply(Flux.fromArray(values)).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void unwrapDoubleQuotes(Blackhole blackhole) {
+        unwrapDoubleQuotes.apply(Flux.fromArray(quotedValues)).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void wrapDoubleQuotesBytes(Blackhole blackhole) {
+        wrapDoubleQuotesBytes.apply(Flux.fromArray(byteValues)).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void unwrapDoubleQuotesBytes(Blackhole blackhole) {
+        unwrapDoubleQuotesBytes.apply(Flux.fromArray(quotedByteValues)).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public String toUpperCase() {
+        return toUpperCase.apply(value);
+    }
+
+    @Benchmark
+    public String toLowerCase() {
+        return toLowerCase.apply(value);
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.jeffrey.example.demospringwebflux.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.jeffrey.example.demospringwebflux.config.DemoMessageConverterConfig;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of {@link DemoEntity}, including the payload
+ * decode done by DemoAspect for every message sent to an output channel,
+ * compared with the binary content types CBOR and Smile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DemoSerializationBenchmark {
+
+    private ObjectMapper jsonMapper;
+
+    private ObjectReader demoEntityReader;
+
+    private ObjectMapper cborMapper;
+
+    private ObjectMapper smileMapper;
+
+    private byte[] cborBytes;
+
+    private byte[] smileBytes;
+
+    private DemoEntity demoEntity;
+
+    private String json;
+
+    private byte[] jsonBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        // same modules (e.g. java time) as the ObjectMapper auto-configured by spring boot
+        jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        demoEntityReader = jsonMapper.readerFor(DemoEntity.class);
+
+        demoEntity = new DemoEntity("abcdefghijklmnopqrstuvwxyz");
+        demoEntity.setId("5e3a4f0c8b1d2a6f9c7e5d41");
+        json = jsonMapper.writeValueAsString(demoEntity);
+        jsonBytes = jsonMapper.writeValueAsBytes(demoEntity);
+
+        cborMapper = DemoMessageConverterConfig.cborObjectMapper();
+        smileMapper = DemoMessageConverterConfig.smileObjectMapper();
+        cborBytes = cborMapper.writeValueAsBytes(demoEntity);
+        smileBytes = smileMapper.writeValueAsBytes(demoEntity);
+    }
+
+    @Benchmark
+    public String writeValueAsString() throws Exception {
+        return jsonMapper.writeValueAsString(demoEntity);
+    }
+
+    @Benchmark
+    public byte[] writeValueAsBytes() throws Exception {
+        return jsonMapper.writeValueAsBytes(demoEntity);
+    }
+
+    @Benchmark
+    public DemoEntity readValueFromString() throws Exception {
+        return jsonMapper.readValue(json, DemoEntity.class);
+    }
+
+    @Benchmark
+    public DemoEntity readValueFromBytes() throws Exception {
+        return jsonMapper.readValue(jsonBytes, DemoEntity.class);
+    }
+
+    /**
+     * Former decode of DemoAspect.interceptAroundOutboundChannel, kept as the baseline
+     */
+    @Benchmark
+    public DemoEntity aspectDecodeViaString() throws Exception {
+        String jsonString = new String(jsonBytes);
+        return jsonMapper.readValue(jsonString, DemoEntity.class);
+    }
+
+    /**
+     * Decode of DemoAspect.interceptAroundOutboundChannel through the cached ObjectReader
+     */
+    @Benchmark
+    public DemoEntity aspectDecode() throws Exception {
+        return demoEntityReader.readValue(jsonBytes);
+    }
+
+    @Benchmark
+    public byte[] writeValueAsCbor() throws Exception {
+        return cborMapper.writeValueAsBytes(demoEntity);
+    }
+
+    @Benchmark
+    public DemoEntity readValueFromCbor() throws Exception {
+        return cborMapper.readValue(cborBytes, DemoEntity.class);
+    }
+
+    @Benchmark
+    public byte[] writeValueAsSmile() throws Exception {
+        return smileMapper.writeValueAsBytes(demoEntity);
+    }
+
+    @Benchmark
+    public DemoEntity readValueFromSmile() throws Exception {
+        return smileMapper.readValue(smileBytes, DemoEntity.class);
+    }
+
+}
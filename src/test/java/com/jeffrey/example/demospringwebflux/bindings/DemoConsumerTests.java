@@ -1,16 +1,24 @@
 package com.jeffrey.example.demospringwebflux.bindings;
 
 import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import com.jeffrey.example.demospringwebflux.service.DemoEntityCache;
+import com.jeffrey.example.demospringwebflux.service.DemoRxService;
 import com.jeffrey.example.demospringwebflux.util.DemoConsumerAdviceInvocator;
+import com.jeffrey.example.demospringwebflux.util.DemoDuplicateFilter;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.mock.env.MockEnvironment;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
 
@@ -28,6 +36,9 @@ public class DemoConsumerTests {
     @BeforeClass
     public static void setUp() {
         demoConsumer = new DemoConsumer();
+        demoConsumer.demoEntityCache = new DemoEntityCache(100, 60);
+        demoConsumer.meterRegistry = new SimpleMeterRegistry();
+        demoConsumer.duplicateFilter = new DemoDuplicateFilter("test", 100);
     }
 
     @SuppressWarnings({"unchecked"})
@@ -73,6 +84,17 @@ public class DemoConsumerTests {
         }
     }
 
+    @Test
+    public void verifyCacheInvalidationRx0() {
+        DemoEntity demoEntity = new DemoEntity("testing");
+        demoEntity.setId("5e4f8b2a1c9d440000a1b2c3");
+        demoConsumer.demoEntityCache.put(demoEntity);
+
+        demoConsumer.cacheInvalidationRx0().accept(Flux.just(MessageBuilder.withPayload(demoEntity).build()));
+
+        Assert.assertNull(demoConsumer.demoEntityCache.get(demoEntity.getId()));
+    }
+
     @SuppressWarnings({"unchecked"})
     @Test
     public void verifyConsumerRx1() {
@@ -161,4 +183,162 @@ public class DemoConsumerTests {
         Assert.assertEquals(input, output);
     }
 
+    @Test
+    public void verifyConsumerRx0Batched() throws Exception {
+        int TEST_COUNT = 5;
+
+        List<List<DemoEntity>> batches = new ArrayList<>();
+        DemoConsumer batchedConsumer = newBatchedConsumer(recordingService(batches), 2);
+
+        // declare the input test data as manually acknowledged deliveries of a channel
+        Channel channel = Mockito.mock(Channel.class);
+        List<Message<DemoEntity>> input = new ArrayList<>();
+        for (int i=0; i<TEST_COUNT; i++) {
+            input.add(MessageBuilder.withPayload(new DemoEntity("testing" + i))
+                    .setHeader(AmqpHeaders.CHANNEL, channel)
+                    .setHeader(AmqpHeaders.DELIVERY_TAG, (long) i + 1)
+                    .build());
+        }
+
+        // emit the stream to consumer
+        batchedConsumer.consumerRx0().accept(Flux.fromIterable(input));
+
+        // validate the batches and that each batch is acknowledged up to its last delivery
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(2, batches.get(0).size());
+        Assert.assertEquals(2, batches.get(1).size());
+        Assert.assertEquals(1, batches.get(2).size());
+        Mockito.verify(channel).basicAck(2L, true);
+        Mockito.verify(channel).basicAck(4L, true);
+        Mockito.verify(channel).basicAck(5L, true);
+        Mockito.verify(channel, Mockito.never()).basicNack(Mockito.anyLong(), Mockito.anyBoolean(), Mockito.anyBoolean());
+    }
+
+    @Test
+    public void verifyConsumerRx0BatchedFailedWriteIsNotRequeued() throws Exception {
+        DemoConsumer batchedConsumer = newBatchedConsumer(new DemoRxService() {
+            @Override
+            public Flux<DemoEntity> upsertDemoEntities(List<DemoEntity> demoEntities) {
+                return Flux.error(new IllegalStateException("write failed"));
+            }
+        }, 2);
+
+        Channel channel = Mockito.mock(Channel.class);
+        List<Message<DemoEntity>> input = new ArrayList<>();
+        for (int i=0; i<2; i++) {
+            input.add(MessageBuilder.withPayload(new DemoEntity("testing" + i))
+                    .setHeader(AmqpHeaders.CHANNEL, channel)
+                    .setHeader(AmqpHeaders.DELIVERY_TAG, (long) i + 1)
+                    .build());
+        }
+
+        batchedConsumer.consumerRx0().accept(Flux.fromIterable(input));
+
+        // rejected to the dead letter queue rather than back to the queue
+        Mockito.verify(channel).basicNack(2L, true, false);
+        Mockito.verify(channel, Mockito.never()).basicAck(Mockito.anyLong(), Mockito.anyBoolean());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void verifyConsumerRx0BatchedRequiresManualAck() {
+        DemoConsumer batchedConsumer = newBatchedConsumer(new DemoRxService(), 2);
+        batchedConsumer.environment = new MockEnvironment();
+
+        batchedConsumer.consumerRx0();
+    }
+
+    @Test
+    public void verifyConsumerRx0BatchedManualAckByDefault() {
+        // the default consumer properties apply unless the binding overrides them
+        DemoConsumer batchedConsumer = newBatchedConsumer(new DemoRxService(), 2);
+        batchedConsumer.environment = new MockEnvironment()
+                .withProperty("spring.cloud.stream.rabbit.default.consumer.acknowledgeMode", "MANUAL");
+        batchedConsumer.consumerRx0();
+
+        batchedConsumer.environment = new MockEnvironment()
+                .withProperty("spring.cloud.stream.rabbit.default.consumer.acknowledgeMode", "MANUAL")
+                .withProperty("spring.cloud.stream.rabbit.bindings.consumerRx0-in-0.consumer.acknowledgeMode", "AUTO");
+        try {
+            batchedConsumer.consumerRx0();
+            Assert.fail("the binding overrides the default acknowledgeMode");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void verifyConsumerRx0BatchedDedupByMessageId() throws Exception {
+        List<List<DemoEntity>> batches = new ArrayList<>();
+        DemoConsumer batchedConsumer = newBatchedConsumer(recordingService(batches), 4);
+
+        // a copy of the first message in the same batch, then the same entity sent again as a new message
+        DemoEntity demoEntity = new DemoEntity("testing");
+        demoEntity.setId("entity-1");
+        Channel channel = Mockito.mock(Channel.class);
+        String[] messageIds = new String[] {"message-1", "message-1", "message-2", null};
+        List<Message<DemoEntity>> input = new ArrayList<>();
+        for (int i=0; i<messageIds.length; i++) {
+            input.add(MessageBuilder.withPayload(demoEntity)
+                    .setHeader(AmqpHeaders.MESSAGE_ID, messageIds[i])
+                    .setHeader(AmqpHeaders.CHANNEL, channel)
+                    .setHeader(AmqpHeaders.DELIVERY_TAG, (long) i + 1)
+                    .build());
+        }
+
+        batchedConsumer.consumerRx0().accept(Flux.fromIterable(input));
+
+        // only the copy is dropped, the entity id is not used as the identity of the message
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(3, batches.get(0).size());
+        Mockito.verify(channel).basicAck(4L, true);
+    }
+
+    @Test
+    public void verifyLanesDisposedWithConsumer() {
+        DemoConsumer lanedConsumer = new DemoConsumer();
+        lanedConsumer.meterRegistry = new SimpleMeterRegistry();
+        lanedConsumer.laneCount = 2;
+
+        lanedConsumer.consumerRx1();
+        Assert.assertEquals(1, lanedConsumer.keyedLanes.size());
+
+        lanedConsumer.disposeLanes();
+        Assert.assertTrue(lanedConsumer.keyedLanes.isDisposed());
+    }
+
+    /**
+     * A consumer of batches of up to batchSize messages, manually acknowledged
+     */
+    private static DemoConsumer newBatchedConsumer(DemoRxService demoRxService, int batchSize) {
+        DemoConsumer batchedConsumer = new DemoConsumer();
+        batchedConsumer.demoEntityCache = new DemoEntityCache(100, 60);
+        batchedConsumer.meterRegistry = new SimpleMeterRegistry();
+        batchedConsumer.duplicateFilter = new DemoDuplicateFilter("test", 100);
+        batchedConsumer.environment = manualAckEnvironment();
+        batchedConsumer.batchEnabled = true;
+        batchedConsumer.batchSize = batchSize;
+        batchedConsumer.batchTimeoutMs = 1000;
+        batchedConsumer.demoRxService = demoRxService;
+        return batchedConsumer;
+    }
+
+    /**
+     * Persist into a list instead of the DB, one entry per bulk write
+     */
+    private static DemoRxService recordingService(List<List<DemoEntity>> batches) {
+        return new DemoRxService() {
+            @Override
+            public Flux<DemoEntity> upsertDemoEntities(List<DemoEntity> demoEntities) {
+                batches.add(demoEntities);
+                return Flux.fromIterable(demoEntities);
+            }
+        };
+    }
+
+    private static MockEnvironment manualAckEnvironment() {
+        return new MockEnvironment()
+                .withProperty("spring.cloud.stream.rabbit.bindings.consumerRx0-in-0.consumer.acknowledgeMode", "MANUAL")
+                .withProperty("spring.cloud.stream.rabbit.bindings.consumerRx0-in-0.consumer.autoBindDlq", "true");
+    }
+
 }
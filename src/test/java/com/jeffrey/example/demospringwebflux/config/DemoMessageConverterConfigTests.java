@@ -0,0 +1,91 @@
+package com.jeffrey.example.demospringwebflux.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Collections;
+
+@RunWith(JUnit4.class)
+public class DemoMessageConverterConfigTests {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DemoMessageConverterConfigTests.class);
+
+    private static DemoMessageConverterConfig demoMessageConverterConfig;
+
+    private static ObjectMapper jsonMapper;
+
+    @BeforeClass
+    public static void setUp() {
+        demoMessageConverterConfig = new DemoMessageConverterConfig();
+        jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Test
+    public void verifyCborRoundTrip() {
+        verifyRoundTrip(demoMessageConverterConfig.cborMessageConverter(), DemoMessageConverterConfig.APPLICATION_CBOR);
+    }
+
+    @Test
+    public void verifySmileRoundTrip() {
+        verifyRoundTrip(demoMessageConverterConfig.smileMessageConverter(), DemoMessageConverterConfig.APPLICATION_SMILE);
+    }
+
+    @Test
+    public void verifyJsonMessageIsNotConverted() {
+        MessageConverter messageConverter = demoMessageConverterConfig.cborMessageConverter();
+        Message<?> message = MessageBuilder.withPayload(new byte[] {'{', '}'})
+                .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+                .build();
+        Assert.assertNull(messageConverter.fromMessage(message, DemoEntity.class));
+
+        Message<?> messageWithoutContentType = MessageBuilder.withPayload(new byte[] {'{', '}'}).build();
+        Assert.assertNull(messageConverter.fromMessage(messageWithoutContentType, DemoEntity.class));
+    }
+
+    @Test
+    public void verifyBinaryIsSmallerThanJson() throws Exception {
+        DemoEntity demoEntity = newDemoEntity();
+        byte[] json = jsonMapper.writeValueAsBytes(demoEntity);
+        byte[] cbor = DemoMessageConverterConfig.cborObjectMapper().writeValueAsBytes(demoEntity);
+        byte[] smile = DemoMessageConverterConfig.smileObjectMapper().writeValueAsBytes(demoEntity);
+        LOGGER.debug("payload size - json: {}, cbor: {}, smile: {}", json.length, cbor.length, smile.length);
+
+        Assert.assertTrue(cbor.length < json.length);
+        Assert.assertTrue(smile.length < json.length);
+    }
+
+    private void verifyRoundTrip(MessageConverter messageConverter, MimeType mimeType) {
+        DemoEntity demoEntity = newDemoEntity();
+        MessageHeaders headers = new MessageHeaders(Collections.singletonMap(MessageHeaders.CONTENT_TYPE, mimeType));
+
+        Message<?> message = messageConverter.toMessage(demoEntity, headers);
+        Assert.assertNotNull(message);
+        Assert.assertTrue(message.getPayload() instanceof byte[]);
+
+        DemoEntity decodedEntity = (DemoEntity) messageConverter.fromMessage(message, DemoEntity.class);
+        Assert.assertNotNull(decodedEntity);
+        Assert.assertEquals(demoEntity.getId(), decodedEntity.getId());
+        Assert.assertEquals(demoEntity.getData(), decodedEntity.getData());
+        Assert.assertEquals(demoEntity.getCreatedOn(), decodedEntity.getCreatedOn());
+    }
+
+    private static DemoEntity newDemoEntity() {
+        DemoEntity demoEntity = new DemoEntity("abcdefghijklmnopqrstuvwxyz");
+        demoEntity.setId("5e3a4f0c8b1d2a6f9c7e5d41");
+        return demoEntity;
+    }
+
+}
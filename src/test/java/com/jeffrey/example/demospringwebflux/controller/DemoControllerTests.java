@@ -0,0 +1,131 @@
+package com.jeffrey.example.demospringwebflux.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityPage;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import com.jeffrey.example.demospringwebflux.service.DemoService;
+import com.jeffrey.example.demospringwebflux.util.DemoBlockingExecutor;
+import com.jeffrey.example.demospringwebflux.util.DemoPartialEntityWriter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Optional;
+
+@RunWith(JUnit4.class)
+public class DemoControllerTests {
+
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private DemoEntity demoEntity;
+    private DemoService demoService;
+    private WebTestClient webTestClient;
+
+    @Before
+    public void setUp() {
+        demoEntity = new DemoEntity("abc");
+        demoEntity.setId("5e4f8b2a1c9d440000a1b2c3");
+        demoService = Mockito.mock(DemoService.class);
+
+        DemoController demoController = new DemoController();
+        demoController.demoService = demoService;
+        demoController.demoBlockingExecutor = new DemoBlockingExecutor("test", DemoBlockingExecutor.Mode.DIRECT, 1, 1);
+        demoController.maxPageLimit = 1000;
+        demoController.streamBatchSize = 500;
+        demoController.jsonMapper = jsonMapper;
+        demoController.demoPartialEntityWriter = new DemoPartialEntityWriter(jsonMapper);
+        demoController.init();
+        webTestClient = WebTestClient.bindToController(demoController).build();
+    }
+
+    @Test
+    public void verifyReadByIdWithFields() {
+        Mockito.when(demoService.readDemoEntityById(demoEntity.getId())).thenReturn(Optional.of(demoEntity));
+
+        webTestClient.get().uri("/demoEntity/{id}?fields=id,createdOn", demoEntity.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("ETag")
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(demoEntity.getId())
+                .jsonPath("$.createdOn").exists()
+                .jsonPath("$.data").doesNotExist();
+    }
+
+    @Test
+    public void verifyReadAllWithFields() {
+        Mockito.when(demoService.readLastModifiedDemoEntity()).thenReturn(Optional.of(demoEntity));
+        Mockito.when(demoService.countDemoEntities()).thenReturn(1L);
+        Mockito.when(demoService.readAllDemoEntities(ArgumentMatchers.eq(""), ArgumentMatchers.any()))
+                .thenReturn(Collections.singletonList(demoEntity));
+
+        webTestClient.get().uri("/demoEntities?fields=data")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].data").isEqualTo("abc")
+                .jsonPath("$[0].id").doesNotExist()
+                .jsonPath("$[0].createdOn").doesNotExist();
+    }
+
+    @Test
+    public void verifyStreamAllWithFields() {
+        Mockito.when(demoService.streamAllDemoEntities(ArgumentMatchers.eq(""), ArgumentMatchers.eq(500), ArgumentMatchers.any()))
+                .thenReturn(cursor(Collections.singletonList(demoEntity).iterator()));
+
+        webTestClient.get().uri("/demoEntities?stream=true&fields=data")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].data").isEqualTo("abc")
+                .jsonPath("$[0].id").doesNotExist();
+    }
+
+    @Test
+    public void verifyReadPageWithFields() {
+        Mockito.when(demoService.readDemoEntitiesPage(ArgumentMatchers.eq(""), ArgumentMatchers.isNull(), ArgumentMatchers.eq(1), ArgumentMatchers.any()))
+                .thenReturn(new DemoEntityPage(Collections.singletonList(demoEntity), "token"));
+
+        webTestClient.get().uri("/demoEntities?limit=1&fields=id")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].id").isEqualTo(demoEntity.getId())
+                .jsonPath("$.items[0].data").doesNotExist()
+                .jsonPath("$.continuation").isEqualTo("token");
+    }
+
+    @Test
+    public void verifyUnknownFieldIsBadRequest() {
+        webTestClient.get().uri("/demoEntity/{id}?fields=unknown", demoEntity.getId())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private static CloseableIterator<DemoEntity> cursor(Iterator<DemoEntity> iterator) {
+        return new CloseableIterator<DemoEntity>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public DemoEntity next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.jeffrey.example.demospringwebflux.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jeffrey.example.demospringwebflux.dao.DemoBulkWriteResult;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityPage;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import com.jeffrey.example.demospringwebflux.service.DemoRxService;
+import com.jeffrey.example.demospringwebflux.util.DemoIngestSink;
+import com.jeffrey.example.demospringwebflux.util.DemoPartialEntityWriter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(JUnit4.class)
+public class DemoRxControllerTests {
+
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private DemoEntity demoEntity;
+    private DemoRxService demoRxService;
+    private DemoIngestSink<DemoEntity> demoEntityIngestSink;
+    private WebTestClient webTestClient;
+
+    @Before
+    public void setUp() {
+        demoEntity = new DemoEntity("abc");
+        demoEntity.setId("5e4f8b2a1c9d440000a1b2c3");
+        demoRxService = Mockito.mock(DemoRxService.class);
+
+        DemoRxController demoRxController = new DemoRxController();
+        demoRxController.demoRxService = demoRxService;
+        demoRxController.demoEntityIngestSink = demoEntityIngestSink =
+                new DemoIngestSink<>("test", 16, DemoIngestSink.OverflowPolicy.REJECT, Duration.ofMillis(10));
+        demoRxController.maxPageLimit = 1000;
+        demoRxController.demoPartialEntityWriter = new DemoPartialEntityWriter(jsonMapper);
+        webTestClient = WebTestClient.bindToController(demoRxController).build();
+    }
+
+    @Test
+    public void verifyReadByIdWithFields() {
+        Mockito.when(demoRxService.readDemoEntityById(demoEntity.getId())).thenReturn(Mono.just(demoEntity));
+
+        webTestClient.get().uri("/rx/demoEntity/{id}?fields=id,createdOn", demoEntity.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("ETag")
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(demoEntity.getId())
+                .jsonPath("$.createdOn").exists()
+                .jsonPath("$.data").doesNotExist();
+    }
+
+    @Test
+    public void verifyReadAllWithFields() throws Exception {
+        Mockito.when(demoRxService.readAllDemoEntities(ArgumentMatchers.eq(""), ArgumentMatchers.any()))
+                .thenReturn(Flux.just(demoEntity));
+
+        String body = webTestClient.get().uri("/rx/demoEntities?fields=data")
+                .accept(MediaType.APPLICATION_STREAM_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        JsonNode node = jsonMapper.readTree(body);
+        Assert.assertEquals(1, node.size());
+        Assert.assertEquals("abc", node.get(DemoEntity.DATA).asText());
+    }
+
+    @Test
+    public void verifyReadPageWithFields() {
+        Mockito.when(demoRxService.readDemoEntitiesPage(ArgumentMatchers.eq(""), ArgumentMatchers.isNull(), ArgumentMatchers.eq(1), ArgumentMatchers.any()))
+                .thenReturn(Mono.just(new DemoEntityPage(Collections.singletonList(demoEntity), "token")));
+
+        webTestClient.get().uri("/rx/demoEntities?limit=1&fields=id")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].id").isEqualTo(demoEntity.getId())
+                .jsonPath("$.items[0].data").doesNotExist()
+                .jsonPath("$.continuation").isEqualTo("token");
+    }
+
+    @Test
+    public void verifyCreateByJsonReportsFailedItems() {
+        DemoEntity other = new DemoEntity("def");
+        Mockito.when(demoRxService.createDemoEntities(ArgumentMatchers.<Iterable<DemoEntity>>any()))
+                .thenReturn(Flux.just(
+                        DemoBulkWriteResult.success(0, demoEntity),
+                        DemoBulkWriteResult.failure(1, other, "duplicate key")));
+
+        webTestClient.post().uri("/rx/demoEntities")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Arrays.asList(demoEntity, other))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.MULTI_STATUS)
+                .expectBody()
+                .jsonPath("$[0].index").isEqualTo(0)
+                .jsonPath("$[0].error").doesNotExist()
+                .jsonPath("$[1].index").isEqualTo(1)
+                .jsonPath("$[1].error").isEqualTo("duplicate key");
+        // only the saved entity is published
+        Assert.assertEquals(1, demoEntityIngestSink.size());
+    }
+
+    @Test
+    public void verifyCreateByJsonAllSaved() {
+        Mockito.when(demoRxService.createDemoEntities(ArgumentMatchers.<Iterable<DemoEntity>>any()))
+                .thenReturn(Flux.just(DemoBulkWriteResult.success(0, demoEntity)));
+
+        webTestClient.post().uri("/rx/demoEntities")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Collections.singletonList(demoEntity))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$[0].demoEntity.id").isEqualTo(demoEntity.getId());
+    }
+
+    @Test
+    public void verifyCreateByStreamReportsUnpublishedEntity() throws Exception {
+        DemoEntity other = new DemoEntity("def");
+        for (int i=0; i<16; i++) {
+            demoEntityIngestSink.tryEmit(new DemoEntity(null));
+        }
+        Mockito.when(demoRxService.createDemoEntities(ArgumentMatchers.<Flux<DemoEntity>>any()))
+                .thenReturn(Flux.just(DemoBulkWriteResult.success(0, other)));
+
+        // the sink stays full, the saved entity is reported instead of being dropped silently
+        String body = webTestClient.post().uri("/rx/demoEntities")
+                .contentType(MediaType.APPLICATION_STREAM_JSON)
+                .accept(MediaType.APPLICATION_STREAM_JSON)
+                .bodyValue(other)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        JsonNode result = jsonMapper.readTree(body);
+        Assert.assertEquals(0, result.get(DemoBulkWriteResult.INDEX).asInt());
+        Assert.assertTrue(result.has(DemoBulkWriteResult.ERROR));
+        Assert.assertEquals(16, demoEntityIngestSink.size());
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.jeffrey.example.demospringwebflux.dao;
+
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class DemoEntityCursorTests {
+
+    @Test
+    public void verifyContinuationRoundTrip() {
+        DemoEntity demoEntity = new DemoEntity("abc");
+        demoEntity.setId("5e4f8b2a1c9d440000a1b2c3");
+
+        String continuation = DemoEntityCursor.encode(DemoEntity.DATA, demoEntity);
+        Assert.assertNotNull(continuation);
+
+        DemoEntityCursor cursor = DemoEntityCursor.decode(continuation, DemoEntity.DATA);
+        Query query = DemoEntityCursor.pageQuery(DemoEntity.DATA, cursor, 10);
+
+        // one extra entity is read to find out if there is a next page
+        Assert.assertEquals(11, query.getLimit());
+        Assert.assertEquals(0, query.getSkip());
+        Assert.assertTrue(query.getQueryObject().toJson().contains("abc"));
+        Assert.assertTrue(query.getQueryObject().toJson().contains("5e4f8b2a1c9d440000a1b2c3"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyContinuationOfDifferentSortOrder() {
+        DemoEntity demoEntity = new DemoEntity("abc");
+        demoEntity.setId("5e4f8b2a1c9d440000a1b2c3");
+
+        String continuation = DemoEntityCursor.encode(DemoEntity.CREATED_ON, demoEntity);
+        DemoEntityCursor.decode(continuation, DemoEntity.DATA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyMalformedContinuation() {
+        DemoEntityCursor.decode("not-a-token", DemoEntity.ID);
+    }
+
+    @Test
+    public void verifyPage() {
+        List<DemoEntity> entities = new ArrayList<>();
+        for (String data:Arrays.asList("a","b","c")) {
+            DemoEntity demoEntity = new DemoEntity(data);
+            demoEntity.setId("5e4f8b2a1c9d440000a1b2c" + entities.size());
+            entities.add(demoEntity);
+        }
+
+        DemoEntityPage page = DemoEntityCursor.toPage(DemoEntity.ID, entities, 2);
+        Assert.assertEquals(2, page.getItems().size());
+        Assert.assertNotNull(page.getContinuation());
+
+        DemoEntityPage lastPage = DemoEntityCursor.toPage(DemoEntity.ID, entities, 3);
+        Assert.assertEquals(3, lastPage.getItems().size());
+        Assert.assertNull(lastPage.getContinuation());
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.jeffrey.example.demospringwebflux.dao;
+
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public class DemoEntityFieldsTests {
+
+    @Test
+    public void verifyParse() {
+        Assert.assertNull(DemoEntityFields.parse(null));
+        Assert.assertNull(DemoEntityFields.parse(" "));
+
+        // declaration order of the entity, duplicates ignored
+        DemoEntityFields fields = DemoEntityFields.parse("data, id,data");
+        Assert.assertEquals(Arrays.asList(DemoEntity.ID, DemoEntity.DATA), fields.getNames());
+        Assert.assertTrue(fields.includes(DemoEntity.ID));
+        Assert.assertFalse(fields.includes(DemoEntity.CREATED_ON));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyParseUnknownField() {
+        DemoEntityFields.parse("id,unknown");
+    }
+
+    @Test
+    public void verifyProjectionIncludesSortKey() {
+        DemoEntityFields fields = DemoEntityFields.parse("createdOn");
+
+        Document projection = fields.project(new Query(), DemoEntity.DATA).getFieldsObject();
+        Assert.assertEquals(3, projection.size());
+        Assert.assertTrue(projection.containsKey(DemoEntity.CREATED_ON));
+        Assert.assertTrue(projection.containsKey(DemoEntity.ID));
+        Assert.assertTrue(projection.containsKey(DemoEntity.DATA));
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.jeffrey.example.demospringwebflux.loadtest;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Requests of the load test mix, one per endpoint of DemoController and DemoRxController
+ */
+enum DemoLoadTestEndpoint {
+
+    create("POST /demoEntity") {
+        @Override
+        Mono<?> request(WebClient webClient) {
+            return webClient.post().uri("/demoEntity")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(PAYLOAD)
+                    .retrieve()
+                    .toBodilessEntity();
+        }
+    },
+
+    read("GET /demoEntities?limit=20") {
+        @Override
+        Mono<?> request(WebClient webClient) {
+            return webClient.get().uri("/demoEntities?limit=20")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .retrieve()
+                    .toBodilessEntity();
+        }
+    },
+
+    rxCreate("POST /rx/demoEntity") {
+        @Override
+        Mono<?> request(WebClient webClient) {
+            return webClient.post().uri("/rx/demoEntity")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(PAYLOAD)
+                    .retrieve()
+                    .toBodilessEntity();
+        }
+    },
+
+    rxRead("GET /rx/demoEntities?limit=20") {
+        @Override
+        Mono<?> request(WebClient webClient) {
+            return webClient.get().uri("/rx/demoEntities?limit=20")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .retrieve()
+                    .toBodilessEntity();
+        }
+    };
+
+    private static final String PAYLOAD = "{\"data\":\"load test\"}";
+
+    private final String description;
+
+    DemoLoadTestEndpoint(String description) {
+        this.description = description;
+    }
+
+    String description() {
+        return description;
+    }
+
+    /**
+     * The response body is released without being decoded, an error status fails the mono
+     */
+    abstract Mono<?> request(WebClient webClient);
+
+}
@@ -0,0 +1,222 @@
+package com.jeffrey.example.demospringwebflux.loadtest;
+
+import com.jeffrey.example.demospringwebflux.DemoApplication;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open-model load test of the controllers: requests are started at a fixed arrival
+ * rate regardless of how many are still in flight, and the latency of each request
+ * is measured from the time it was scheduled to start, so a stalled service shows up
+ * in the tail latency instead of silently lowering the request rate.
+ *
+ * The latency of every endpoint of the mix is recorded in its own HdrHistogram and
+ * written to target/loadtest/{timestamp}/ as a percentile distribution (.hgrm) per
+ * endpoint together with a summary.csv, to be compared across runs.
+ *
+ * Run against a local service (with its MongoDB and RabbitMQ):
+ * mvn -P loadtest verify -Dloadtest.rate=200 -Dloadtest.mix=rxCreate=3,rxRead=1
+ *
+ * or against the service started in-process on the test classpath, which binds
+ * the stream to the test binder instead of RabbitMQ (MongoDB is still required):
+ * mvn -P loadtest verify -Dloadtest.embedded=true
+ *
+ * System properties:
+ * - loadtest.base-url: default http://localhost:8081
+ * - loadtest.rate: requests per second, default 100
+ * - loadtest.duration-seconds: measured duration, default 30
+ * - loadtest.warmup-seconds: duration not recorded before the measurement, default 5
+ * - loadtest.timeout-seconds: timeout of a request, default 10
+ * - loadtest.mix: weight of each endpoint (see DemoLoadTestEndpoint), default create=1,read=1,rxCreate=1,rxRead=1
+ * - loadtest.embedded: start the service in-process, default false
+ * - loadtest.label: appended to the name of the report directory to tell the runs apart, default none
+ *
+ * To compare the blocking DemoController with the reactive DemoRxController, run the
+ * same rate once per path and per demo.blocking.mode of the service, e.g.:
+ * mvn -P loadtest verify -Dloadtest.embedded=true -Dloadtest.mix=read=1 -Ddemo.blocking.mode=VIRTUAL -Dloadtest.label=virtual
+ * mvn -P loadtest verify -Dloadtest.embedded=true -Dloadtest.mix=rxRead=1 -Dloadtest.label=reactive
+ */
+public class DemoLoadTestRunner {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    public static void main(String[] args) throws IOException {
+        String baseUrl = System.getProperty("loadtest.base-url", "http://localhost:8081");
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "100"));
+        Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 30));
+        Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 5));
+        Duration timeout = Duration.ofSeconds(Long.getLong("loadtest.timeout-seconds", 10));
+        String mix = System.getProperty("loadtest.mix", "create=1,read=1,rxCreate=1,rxRead=1");
+        boolean embedded = Boolean.getBoolean("loadtest.embedded");
+        String label = System.getProperty("loadtest.label", "");
+
+        ConfigurableApplicationContext applicationContext = null;
+        if (embedded) {
+            applicationContext = SpringApplication.run(DemoApplication.class, args);
+        }
+
+        try {
+            DemoLoadTestRunner runner = new DemoLoadTestRunner(
+                    WebClient.create(baseUrl), rate, duration, warmup, timeout, parseMix(mix));
+            runner.run();
+            String reportName = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            runner.report(new File("target/loadtest", label.isEmpty() ? reportName : reportName + "-" + label));
+        } finally {
+            if (applicationContext != null) {
+                applicationContext.close();
+            }
+        }
+    }
+
+    private final WebClient webClient;
+    private final double rate;
+    private final Duration duration;
+    private final Duration warmup;
+    private final Duration timeout;
+
+    // cumulative weights for the random selection of the endpoint of each request
+    private final DemoLoadTestEndpoint[] endpoints;
+    private final int[] cumulativeWeights;
+
+    private final Map<DemoLoadTestEndpoint, Histogram> histograms = new EnumMap<>(DemoLoadTestEndpoint.class);
+    private final Map<DemoLoadTestEndpoint, AtomicLong> errors = new EnumMap<>(DemoLoadTestEndpoint.class);
+
+    DemoLoadTestRunner(WebClient webClient, double rate, Duration duration, Duration warmup, Duration timeout,
+                       Map<DemoLoadTestEndpoint, Integer> mix)
+    {
+        this.webClient = webClient;
+        this.rate = rate;
+        this.duration = duration;
+        this.warmup = warmup;
+        this.timeout = timeout;
+
+        this.endpoints = mix.keySet().toArray(new DemoLoadTestEndpoint[0]);
+        this.cumulativeWeights = new int[endpoints.length];
+        int totalWeight = 0;
+        for (int i=0; i<endpoints.length; i++) {
+            totalWeight += mix.get(endpoints[i]);
+            cumulativeWeights[i] = totalWeight;
+
+            // latencies are recorded in microseconds, up to the request timeout
+            histograms.put(endpoints[i], new ConcurrentHistogram(timeout.toNanos() / 1000, SIGNIFICANT_DIGITS));
+            errors.put(endpoints[i], new AtomicLong());
+        }
+    }
+
+    void run() {
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long totalRequests = (long) (rate * (warmup.getSeconds() + duration.getSeconds()));
+        long warmupRequests = (long) (rate * warmup.getSeconds());
+        long startNanos = System.nanoTime();
+
+        System.out.printf("load test - %.1f requests/s for %ds (+%ds warmup)%n", rate, duration.getSeconds(), warmup.getSeconds());
+
+        // the arrivals do not wait for the responses, the concurrency is unbounded
+        Flux.interval(Duration.ofNanos(periodNanos))
+                .take(totalRequests)
+                .flatMap(index -> {
+                    long scheduledNanos = startNanos + (index + 1) * periodNanos;
+                    boolean recorded = index >= warmupRequests;
+                    DemoLoadTestEndpoint endpoint = nextEndpoint();
+                    return endpoint.request(webClient)
+                            .timeout(timeout)
+                            .doOnSuccess(response -> {
+                                if (recorded) record(endpoint, scheduledNanos);
+                            })
+                            .onErrorResume(throwable -> {
+                                if (recorded) {
+                                    errors.get(endpoint).incrementAndGet();
+                                    record(endpoint, scheduledNanos);
+                                }
+                                return Mono.empty();
+                            });
+                }, Integer.MAX_VALUE)
+                .blockLast();
+    }
+
+    private DemoLoadTestEndpoint nextEndpoint() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i=0; i<cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return endpoints[i];
+            }
+        }
+        return endpoints[endpoints.length - 1];
+    }
+
+    private void record(DemoLoadTestEndpoint endpoint, long scheduledNanos) {
+        Histogram histogram = histograms.get(endpoint);
+        long latencyMicros = Math.max(0, (System.nanoTime() - scheduledNanos) / 1000);
+        histogram.recordValue(Math.min(latencyMicros, histogram.getHighestTrackableValue()));
+    }
+
+    void report(File reportDir) throws IOException {
+        if (!reportDir.mkdirs() && !reportDir.isDirectory()) {
+            throw new IOException("cannot create the report directory: " + reportDir);
+        }
+
+        List<String> summary = new ArrayList<>();
+        summary.add("endpoint,count,errors,throughput,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+        for (DemoLoadTestEndpoint endpoint:endpoints) {
+            Histogram histogram = histograms.get(endpoint);
+
+            // percentile distribution in milliseconds, e.g. for the HdrHistogram plotter
+            try (PrintStream out = new PrintStream(new FileOutputStream(new File(reportDir, endpoint.name() + ".hgrm")))) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+
+            summary.add(String.format("%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f",
+                    endpoint.name(),
+                    histogram.getTotalCount(),
+                    errors.get(endpoint).get(),
+                    histogram.getTotalCount() / (double) duration.getSeconds(),
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(90) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0));
+        }
+
+        try (PrintStream out = new PrintStream(new FileOutputStream(new File(reportDir, "summary.csv")))) {
+            summary.forEach(out::println);
+        }
+        System.out.printf("load test - report written to %s%n", reportDir.getPath());
+        summary.forEach(System.out::println);
+    }
+
+    static Map<DemoLoadTestEndpoint, Integer> parseMix(String mix) {
+        Map<DemoLoadTestEndpoint, Integer> weights = new EnumMap<>(DemoLoadTestEndpoint.class);
+        for (String entry:mix.split(",")) {
+            String[] keyValue = entry.trim().split("=");
+            int weight = keyValue.length > 1 ? Integer.parseInt(keyValue[1].trim()) : 1;
+            if (weight > 0) {
+                weights.put(DemoLoadTestEndpoint.valueOf(keyValue[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("the mix has no endpoint: " + mix);
+        }
+        return weights;
+    }
+
+}
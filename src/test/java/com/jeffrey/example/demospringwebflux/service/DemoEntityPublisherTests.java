@@ -0,0 +1,191 @@
+package com.jeffrey.example.demospringwebflux.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.batch.SimpleBatchingStrategy;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.BatchingRabbitTemplate;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.stream.config.BindingProperties;
+import org.springframework.cloud.stream.config.BindingServiceProperties;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class DemoEntityPublisherTests {
+
+    private final List<Message<?>> sentMessages = Collections.synchronizedList(new ArrayList<>());
+    private final ObjectMapper jsonMapper = new ObjectMapper().findAndRegisterModules();
+
+    private DemoEntityPublisher demoEntityPublisher;
+
+    @After
+    public void tearDown() {
+        if (demoEntityPublisher != null) demoEntityPublisher.close();
+    }
+
+    private DemoEntityPublisher newPublisher(boolean async, int queueCapacity, MessageChannel channel) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("test-out-0", channel);
+        BindingServiceProperties bindingServiceProperties = new BindingServiceProperties();
+        bindingServiceProperties.getBindings().put("test-out-0", new BindingProperties());
+
+        DemoEntityPublisher publisher = new DemoEntityPublisher();
+        publisher.beanFactory = beanFactory;
+        publisher.bindingServiceProperties = bindingServiceProperties;
+        publisher.jsonMapper = jsonMapper;
+        publisher.meterRegistry = new SimpleMeterRegistry();
+        publisher.environment = new MockEnvironment()
+                .withProperty("spring.cloud.stream.rabbit.bindings.test-out-0.producer.batchingEnabled", "true");
+        publisher.bindingName = "test-out-0";
+        publisher.async = async;
+        publisher.queueCapacity = queueCapacity;
+        publisher.batchSize = 10;
+        publisher.lingerMs = 1;
+        publisher.init();
+        return publisher;
+    }
+
+    @Test
+    public void verifyPublish() throws Exception {
+        demoEntityPublisher = newPublisher(false, 1, (message, timeout) -> sentMessages.add(message));
+
+        Assert.assertTrue(demoEntityPublisher.publish("test-out-0", new DemoEntity("testing")).get());
+
+        // serialized by the cached writer of the binding contentType
+        Message<?> message = sentMessages.get(0);
+        Assert.assertEquals(MimeTypeUtils.APPLICATION_JSON, message.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+        Assert.assertEquals("testing", jsonMapper.readValue((byte[]) message.getPayload(), DemoEntity.class).getData());
+    }
+
+    @Test
+    public void verifyPublishAsync() throws Exception {
+        demoEntityPublisher = newPublisher(true, 100, (message, timeout) -> sentMessages.add(message));
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i=0; i<50; i++) {
+            futures.add(demoEntityPublisher.publish("test-out-0", new DemoEntity(String.valueOf(i))));
+        }
+        for (CompletableFuture<Boolean> future:futures) {
+            Assert.assertTrue(future.get(5, TimeUnit.SECONDS));
+        }
+
+        // sent in order by the publisher thread
+        Assert.assertEquals(50, sentMessages.size());
+        for (int i=0; i<50; i++) {
+            Assert.assertEquals(String.valueOf(i), jsonMapper.readValue((byte[]) sentMessages.get(i).getPayload(), DemoEntity.class).getData());
+        }
+    }
+
+    @Test
+    public void verifyPublishAsyncRejectWhenQueueFull() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        demoEntityPublisher = newPublisher(true, 1, (message, timeout) -> {
+            sending.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+
+        // the first message holds the publisher thread, the second fills the queue
+        CompletableFuture<Boolean> first = demoEntityPublisher.publish("test-out-0", new DemoEntity("1"));
+        Assert.assertTrue(sending.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = demoEntityPublisher.publish("test-out-0", new DemoEntity("2"));
+        CompletableFuture<Boolean> third = demoEntityPublisher.publish("test-out-0", new DemoEntity("3"));
+
+        try {
+            third.get(5, TimeUnit.SECONDS);
+            Assert.fail("the message must be rejected when the queue is full");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        release.countDown();
+        Assert.assertTrue(first.get(5, TimeUnit.SECONDS));
+        Assert.assertTrue(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void verifyPublishAsyncBatchIsOneBrokerPublish() throws Exception {
+        // the binder hands the messages of the binding to a batching template when its producer batching is enabled
+        Channel rabbitChannel = Mockito.mock(Channel.class);
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.createChannel(false)).thenReturn(rabbitChannel);
+        ConnectionFactory connectionFactory = Mockito.mock(ConnectionFactory.class);
+        Mockito.when(connectionFactory.createConnection()).thenReturn(connection);
+        BatchingRabbitTemplate rabbitTemplate = new BatchingRabbitTemplate(
+                new SimpleBatchingStrategy(10, 100000, 60000), Mockito.mock(TaskScheduler.class));
+        rabbitTemplate.setConnectionFactory(connectionFactory);
+
+        demoEntityPublisher = newPublisher(true, 100, (message, timeout) -> {
+            rabbitTemplate.send("test", "", new org.springframework.amqp.core.Message((byte[]) message.getPayload(), new MessageProperties()));
+            return true;
+        });
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i=0; i<10; i++) {
+            futures.add(demoEntityPublisher.publish(new DemoEntity(String.valueOf(i))));
+        }
+        for (CompletableFuture<Boolean> future:futures) {
+            Assert.assertTrue(future.get(5, TimeUnit.SECONDS));
+        }
+
+        // a batch of 10 messages is a single publish to the broker
+        Mockito.verify(rabbitChannel, Mockito.times(1)).basicPublish(
+                Mockito.anyString(), Mockito.anyString(), Mockito.anyBoolean(), Mockito.any(AMQP.BasicProperties.class), Mockito.any(byte[].class));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void verifyPublishAsyncRequiresProducerBatching() {
+        DemoEntityPublisher publisher = new DemoEntityPublisher();
+        publisher.meterRegistry = new SimpleMeterRegistry();
+        publisher.environment = new MockEnvironment();
+        publisher.bindingName = "test-out-0";
+        publisher.async = true;
+        publisher.queueCapacity = 1;
+        publisher.init();
+    }
+
+    @Test
+    public void verifyMessageIdOnlyWhenSync() throws Exception {
+        demoEntityPublisher = newPublisher(false, 1, (message, timeout) -> sentMessages.add(message));
+        Assert.assertTrue(demoEntityPublisher.publish(new DemoEntity("testing")).get());
+        Assert.assertNotNull(sentMessages.get(0).getHeaders().get(AmqpHeaders.MESSAGE_ID));
+        demoEntityPublisher.close();
+
+        // the messages of a producer batch would share one message id
+        demoEntityPublisher = newPublisher(true, 1, (message, timeout) -> sentMessages.add(message));
+        Assert.assertTrue(demoEntityPublisher.publish(new DemoEntity("testing")).get(5, TimeUnit.SECONDS));
+        Assert.assertNull(sentMessages.get(1).getHeaders().get(AmqpHeaders.MESSAGE_ID));
+    }
+
+}
@@ -0,0 +1,211 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(JUnit4.class)
+public class DemoBlockingExecutorTests {
+
+    private DemoBlockingExecutor executor;
+
+    @After
+    public void tearDown() {
+        if (executor != null) executor.dispose();
+    }
+
+    @Test
+    public void verifyDirect() {
+        executor = new DemoBlockingExecutor("test", DemoBlockingExecutor.Mode.DIRECT, 1, 1);
+        String caller = Thread.currentThread().getName();
+
+        StepVerifier.create(executor.call(() -> Thread.currentThread().getName()))
+                .expectNext(caller)
+                .verifyComplete();
+    }
+
+    @Test
+    public void verifyBulkhead() {
+        executor = new DemoBlockingExecutor("test", DemoBlockingExecutor.Mode.BULKHEAD, 1, 1);
+
+        StepVerifier.create(executor.call(() -> Thread.currentThread().getName()))
+                .expectNextMatches(name -> name.startsWith("test-"))
+                .verifyComplete();
+        StepVerifier.create(executor.call(() -> null))
+                .verifyComplete();
+        StepVerifier.create(executor.call(() -> { throw new IllegalStateException(); }))
+                .verifyError(IllegalStateException.class);
+    }
+
+    @Test
+    public void verifyVirtual() {
+        Method isVirtual;
+        try {
+            isVirtual = Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            // fail fast below JDK 21
+            try {
+                new DemoBlockingExecutor("test", DemoBlockingExecutor.Mode.VIRTUAL, 1, 1);
+                Assert.fail("virtual mode must not start without virtual threads");
+            } catch (IllegalStateException expected) {
+            }
+            return;
+        }
+
+        executor = new DemoBlockingExecutor("test", DemoBlockingExecutor.Mode.VIRTUAL, 1, 1);
+        StepVerifier.create(executor.call(() -> isVirtual.invoke(Thread.currentThread())))
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    public void verifyBulkheadRejectWhenSaturated() throws InterruptedException {
+        executor = new DemoBlockingExecutor("test", DemoBlockingExecutor.Mode.BULKHEAD, 1, 1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        executor.bindTo(meterRegistry);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch queuedDone = new CountDownLatch(1);
+
+        // one call occupies the only thread, the next waits in the queue
+        executor.call(() -> { started.countDown(); return release.await(5, TimeUnit.SECONDS); }).subscribe();
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.call(() -> { queuedDone.countDown(); return true; }).subscribe();
+
+        StepVerifier.create(executor.call(() -> true))
+                .verifyError(RejectedExecutionException.class);
+        Assert.assertEquals(1, meterRegistry.get("demo.blocking.active").gauge().value(), 0);
+        Assert.assertEquals(1, meterRegistry.get("demo.blocking.queued").gauge().value(), 0);
+        Assert.assertEquals(1, meterRegistry.get("demo.blocking.rejected").functionCounter().count(), 0);
+
+        // the queue slot is free again once the queued call has been taken by the thread
+        release.countDown();
+        Assert.assertTrue(queuedDone.await(5, TimeUnit.SECONDS));
+        StepVerifier.create(executor.call(() -> true))
+                .expectNext(true)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void verifyBulkheadCancelFreesQueueSlot() throws InterruptedException {
+        executor = new DemoBlockingExecutor("test", DemoBlockingExecutor.Mode.BULKHEAD, 1, 1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        executor.bindTo(meterRegistry);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // one call occupies the only thread, the next waits in the queue and is then cancelled
+        executor.call(() -> { started.countDown(); return release.await(5, TimeUnit.SECONDS); }).subscribe();
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Disposable queued = executor.call(() -> true).subscribe();
+        Assert.assertEquals(1, meterRegistry.get("demo.blocking.queued").gauge().value(), 0);
+        queued.dispose();
+
+        // the slot is free while the thread is still busy
+        Assert.assertEquals(0, meterRegistry.get("demo.blocking.queued").gauge().value(), 0);
+        executor.call(() -> true).subscribe();
+        Assert.assertEquals(1, meterRegistry.get("demo.blocking.queued").gauge().value(), 0);
+        Assert.assertEquals(0, meterRegistry.get("demo.blocking.rejected").functionCounter().count(), 0);
+        release.countDown();
+    }
+
+    @Test
+    public void verifyStreamAdmittedOnce() throws InterruptedException {
+        executor = new DemoBlockingExecutor("test", DemoBlockingExecutor.Mode.BULKHEAD, 1, 1);
+        AtomicBoolean closed = new AtomicBoolean();
+        CountDownLatch queuedDone = new CountDownLatch(1);
+
+        // the stream holds the only thread between its requests, a call fills the queue
+        StepVerifier.create(executor.stream(cursor(3, closed)), 1)
+                .expectNext(0)
+                .then(() -> executor.call(() -> { queuedDone.countDown(); return true; }).subscribe())
+                .then(() -> StepVerifier.create(executor.call(() -> true))
+                        .verifyError(RejectedExecutionException.class))
+                // the next requests of the stream are not rejected although the executor is saturated
+                .thenRequest(2)
+                .expectNext(1, 2)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        Assert.assertTrue(closed.get());
+        Assert.assertTrue(queuedDone.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void verifyStreamRejectedMidStreamClosesCursor() {
+        executor = new DemoBlockingExecutor("test", DemoBlockingExecutor.Mode.BULKHEAD, 1, 1);
+        AtomicBoolean closed = new AtomicBoolean();
+
+        StepVerifier.create(executor.stream(cursor(3, closed)), 1)
+                .expectNext(0)
+                .then(executor::dispose)
+                .thenRequest(1)
+                .expectError(RejectedExecutionException.class)
+                .verify(Duration.ofSeconds(5));
+
+        Assert.assertTrue(closed.get());
+    }
+
+    @Test
+    public void verifyStreamCancelledClosesCursorOnWorker() throws InterruptedException {
+        executor = new DemoBlockingExecutor("test", DemoBlockingExecutor.Mode.BULKHEAD, 1, 1);
+        AtomicReference<String> readThread = new AtomicReference<>();
+        AtomicReference<String> closeThread = new AtomicReference<>();
+        CountDownLatch closed = new CountDownLatch(1);
+
+        Flux<Integer> cursor = Flux.using(
+                () -> new int[1],
+                position -> Flux.<Integer>generate(sink -> {
+                    readThread.set(Thread.currentThread().getName());
+                    sink.next(position[0]++);
+                }),
+                position -> {
+                    closeThread.set(Thread.currentThread().getName());
+                    closed.countDown();
+                });
+
+        // the client cancels from its own thread after the first element
+        StepVerifier.create(executor.stream(cursor), 1)
+                .expectNext(0)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        Assert.assertTrue(closed.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(readThread.get().startsWith("test-"));
+        Assert.assertEquals(readThread.get(), closeThread.get());
+    }
+
+    /**
+     * A blocking source of count values read one request at a time, flags when it is closed
+     */
+    private static Flux<Integer> cursor(int count, AtomicBoolean closed) {
+        return Flux.using(
+                () -> new int[1],
+                position -> Flux.<Integer>generate(sink -> {
+                    if (position[0] < count) {
+                        sink.next(position[0]++);
+                    } else {
+                        sink.complete();
+                    }
+                }),
+                position -> closed.set(true));
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+
+@RunWith(JUnit4.class)
+public class DemoByteTransformsTests {
+
+    @Test
+    public void verifyWrapDoubleQuotes() {
+        Assert.assertEquals("\"hello\"", decode(DemoByteTransforms.wrapDoubleQuotes(encode("hello"))));
+        Assert.assertEquals("\"\"", decode(DemoByteTransforms.wrapDoubleQuotes(new byte[0])));
+        Assert.assertEquals("\"hello\"", DemoByteTransforms.wrapDoubleQuotes("hello"));
+    }
+
+    @Test
+    public void verifyUnwrapDoubleQuotes() {
+        Assert.assertEquals("hello", decode(DemoByteTransforms.unwrapDoubleQuotes(encode("\"hello\""))));
+        Assert.assertEquals("a b c", decode(DemoByteTransforms.unwrapDoubleQuotes(encode("\"a\" \"b\" c"))));
+        Assert.assertEquals("hello", DemoByteTransforms.unwrapDoubleQuotes("\"hello\""));
+        Assert.assertEquals("a b c", DemoByteTransforms.unwrapDoubleQuotes("\"a\" \"b\" c"));
+
+        // returned as is without any quote
+        byte[] value = encode("hello");
+        Assert.assertSame(value, DemoByteTransforms.unwrapDoubleQuotes(value));
+        String stringValue = "hello";
+        Assert.assertSame(stringValue, DemoByteTransforms.unwrapDoubleQuotes(stringValue));
+    }
+
+    @Test
+    public void verifyMultiByteCharacters() {
+        String value = "été 東京 😀";
+        byte[] wrapped = DemoByteTransforms.wrapDoubleQuotes(encode(value));
+        Assert.assertEquals("\"" + value + "\"", decode(wrapped));
+        Assert.assertEquals(value, decode(DemoByteTransforms.unwrapDoubleQuotes(wrapped)));
+    }
+
+    private static byte[] encode(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String decode(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class DemoConsumerHooksTests {
+
+    @Test
+    public void verifySampling() {
+        int TEST_COUNT = 10000;
+
+        DemoConsumerHooks consumerHooks = new DemoConsumerHooks(false, 1);
+        Assert.assertEquals(0, countSampled(consumerHooks, TEST_COUNT));
+
+        consumerHooks.setEnabled(true);
+        Assert.assertEquals(TEST_COUNT, countSampled(consumerHooks, TEST_COUNT));
+
+        // roughly 1 in 10 messages
+        consumerHooks.setSampleRate(10);
+        int sampled = countSampled(consumerHooks, TEST_COUNT);
+        Assert.assertTrue(sampled > 0 && sampled < TEST_COUNT / 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyInvalidSampleRate() {
+        new DemoConsumerHooks(true, 0);
+    }
+
+    private static int countSampled(DemoConsumerHooks consumerHooks, int count) {
+        int sampled = 0;
+        for (int i=0; i<count; i++) {
+            if (consumerHooks.sample()) sampled++;
+        }
+        return sampled;
+    }
+
+}
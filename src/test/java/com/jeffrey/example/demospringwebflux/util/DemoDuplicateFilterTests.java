@@ -0,0 +1,63 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class DemoDuplicateFilterTests {
+
+    @Test
+    public void verifyDuplicateDropped() {
+        DemoDuplicateFilter duplicateFilter = new DemoDuplicateFilter("test", 10);
+
+        Assert.assertTrue(duplicateFilter.markFirstSeen("a"));
+        Assert.assertTrue(duplicateFilter.markFirstSeen("b"));
+        Assert.assertFalse(duplicateFilter.markFirstSeen("a"));
+        Assert.assertEquals(2, duplicateFilter.size());
+
+        // messages without a key are never filtered
+        Assert.assertTrue(duplicateFilter.markFirstSeen(null));
+        Assert.assertTrue(duplicateFilter.markFirstSeen(null));
+    }
+
+    @Test
+    public void verifyMarkSeenAfterCheck() {
+        DemoDuplicateFilter duplicateFilter = new DemoDuplicateFilter("test", 10);
+
+        Assert.assertFalse(duplicateFilter.isDuplicate("a"));
+        // checking does not remember the key
+        Assert.assertFalse(duplicateFilter.isDuplicate("a"));
+        duplicateFilter.markSeen("a");
+        Assert.assertTrue(duplicateFilter.isDuplicate("a"));
+    }
+
+    @Test
+    public void verifyOldestEvicted() {
+        int CAPACITY = 100;
+        DemoDuplicateFilter duplicateFilter = new DemoDuplicateFilter("test", CAPACITY);
+
+        // overflow the capacity several times so the removals shift the probe sequences around
+        for (int i=0; i<CAPACITY * 5; i++) {
+            Assert.assertTrue(duplicateFilter.markFirstSeen("key" + i));
+        }
+        Assert.assertEquals(CAPACITY, duplicateFilter.size());
+
+        // only the most recent keys are remembered
+        for (int i=CAPACITY * 4; i<CAPACITY * 5; i++) {
+            Assert.assertTrue(duplicateFilter.isDuplicate("key" + i));
+        }
+        for (int i=0; i<CAPACITY * 4; i++) {
+            Assert.assertFalse(duplicateFilter.isDuplicate("key" + i));
+        }
+    }
+
+    @Test
+    public void verifyDisabled() {
+        DemoDuplicateFilter duplicateFilter = new DemoDuplicateFilter("test", 0);
+        Assert.assertTrue(duplicateFilter.markFirstSeen("a"));
+        Assert.assertTrue(duplicateFilter.markFirstSeen("a"));
+    }
+
+}
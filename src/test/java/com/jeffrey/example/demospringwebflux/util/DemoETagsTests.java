@@ -0,0 +1,69 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityFields;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityPage;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.Instant;
+import java.util.Collections;
+
+@RunWith(JUnit4.class)
+public class DemoETagsTests {
+
+    private DemoEntity demoEntity;
+
+    @Before
+    public void setUp() {
+        demoEntity = new DemoEntity("abc");
+        demoEntity.setId("5e4f8b2a1c9d440000a1b2c3");
+        demoEntity.setUpdatedOn(Instant.ofEpochMilli(1000));
+    }
+
+    @Test
+    public void verifyEntityTag() {
+        String eTag = DemoETags.of(demoEntity);
+        Assert.assertEquals(eTag, DemoETags.of(demoEntity));
+
+        DemoEntityFields fields = DemoEntityFields.parse("id");
+        Assert.assertNotEquals(eTag, DemoETags.of(demoEntity, fields));
+        Assert.assertEquals(DemoETags.of(demoEntity, fields), DemoETags.of(demoEntity, DemoEntityFields.parse("id")));
+
+        DemoEntity changed = new DemoEntity("def");
+        changed.setId(demoEntity.getId());
+        Assert.assertNotEquals(eTag, DemoETags.of(changed));
+        Assert.assertNotEquals(DemoETags.of(demoEntity, DemoEntityFields.parse("data")), DemoETags.of(changed, DemoEntityFields.parse("data")));
+        // a field left out of the partial entity does not change its tag
+        Assert.assertEquals(DemoETags.of(demoEntity, fields), DemoETags.of(changed, fields));
+    }
+
+    @Test
+    public void verifyPageTag() {
+        DemoEntityPage page = new DemoEntityPage(Collections.singletonList(demoEntity), "token");
+        String eTag = DemoETags.of(page);
+        Assert.assertEquals(eTag, DemoETags.of(new DemoEntityPage(Collections.singletonList(demoEntity), "token")));
+        Assert.assertNotEquals(eTag, DemoETags.of(new DemoEntityPage(Collections.singletonList(demoEntity), null)));
+        Assert.assertNotEquals(eTag, DemoETags.of(page, DemoEntityFields.parse("id")));
+    }
+
+    @Test
+    public void verifyCollectionTag() {
+        String eTag = DemoETags.ofCollection("", 1, demoEntity);
+        Assert.assertEquals(eTag, DemoETags.ofCollection("", 1, demoEntity));
+
+        // count, last write, sort and field set each change the tag
+        Assert.assertNotEquals(eTag, DemoETags.ofCollection("", 2, demoEntity));
+        Assert.assertNotEquals(eTag, DemoETags.ofCollection("createdOn", 1, demoEntity));
+        Assert.assertNotEquals(eTag, DemoETags.ofCollection("", DemoEntityFields.parse("id"), 1, demoEntity));
+        Assert.assertNotEquals(eTag, DemoETags.ofCollection("", 1, null));
+
+        String lastWrite = DemoETags.ofCollection("", 1, demoEntity);
+        demoEntity.setUpdatedOn(Instant.ofEpochMilli(2000));
+        Assert.assertNotEquals(lastWrite, DemoETags.ofCollection("", 1, demoEntity));
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class DemoIngestSinkTests {
+
+    @Test
+    public void verifyRejectWhenFull() {
+        DemoIngestSink<Integer> sink = new DemoIngestSink<>("test", 2, DemoIngestSink.OverflowPolicy.REJECT, Duration.ZERO);
+
+        // no subscriber, values stay in the buffer
+        Assert.assertTrue(sink.tryEmit(1));
+        Assert.assertTrue(sink.tryEmit(2));
+        Assert.assertFalse(sink.tryEmit(3));
+        Assert.assertEquals(2, sink.size());
+    }
+
+    @Test
+    public void verifyDropOldestWhenFull() {
+        DemoIngestSink<Integer> sink = new DemoIngestSink<>("test", 2, DemoIngestSink.OverflowPolicy.DROP_OLDEST, Duration.ZERO);
+        sink.tryEmit(1);
+        sink.tryEmit(2);
+        sink.tryEmit(3);
+
+        List<Integer> output = new ArrayList<>();
+        sink.asFlux().take(2).doOnNext(output::add).blockLast(Duration.ofSeconds(5));
+
+        Assert.assertEquals(2, output.size());
+        Assert.assertEquals(Integer.valueOf(2), output.get(0));
+        Assert.assertEquals(Integer.valueOf(3), output.get(1));
+    }
+
+    @Test
+    public void verifyBlockTimeoutWhenFull() {
+        DemoIngestSink<Integer> sink = new DemoIngestSink<>("test", 1, DemoIngestSink.OverflowPolicy.BLOCK, Duration.ofMillis(50));
+        Assert.assertTrue(sink.emit(1).block());
+        Assert.assertFalse(sink.emit(2).block());
+    }
+
+    @Test
+    public void verifyEmitAwaitWaitsForRoomWhateverPolicy() {
+        DemoIngestSink<Integer> sink = new DemoIngestSink<>("test", 1, DemoIngestSink.OverflowPolicy.DROP_OLDEST, Duration.ofSeconds(5));
+        Assert.assertTrue(sink.tryEmit(1));
+
+        // the buffered value is not dropped, the subscriber makes room for the awaited one
+        List<Integer> output = Collections.synchronizedList(new ArrayList<>());
+        Disposable subscription = sink.asFlux().delaySubscription(Duration.ofMillis(100)).subscribe(output::add);
+        try {
+            Assert.assertTrue(sink.emitAwait(2).block(Duration.ofSeconds(5)));
+            Assert.assertEquals(Integer.valueOf(1), output.get(0));
+        } finally {
+            subscription.dispose();
+        }
+
+        DemoIngestSink<Integer> full = new DemoIngestSink<>("test", 1, DemoIngestSink.OverflowPolicy.REJECT, Duration.ofMillis(50));
+        Assert.assertTrue(full.tryEmit(1));
+        Assert.assertFalse(full.emitAwait(2).block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    public void verifyConcurrentProducers() throws InterruptedException {
+        int PRODUCER_COUNT = 4;
+        int VALUE_COUNT = 1000;
+
+        DemoIngestSink<Integer> sink = new DemoIngestSink<>("test", 16, DemoIngestSink.OverflowPolicy.BLOCK, Duration.ofSeconds(5));
+
+        List<Integer> output = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch completed = new CountDownLatch(PRODUCER_COUNT * VALUE_COUNT);
+        Disposable subscription = sink.asFlux().subscribe(value -> {
+            output.add(value);
+            completed.countDown();
+        });
+
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCER_COUNT);
+        for (int p=0; p<PRODUCER_COUNT; p++) {
+            producers.submit(() -> {
+                for (int i=0; i<VALUE_COUNT; i++) {
+                    Assert.assertTrue(sink.tryEmit(i));
+                }
+            });
+        }
+
+        Assert.assertTrue(completed.await(10, TimeUnit.SECONDS));
+        producers.shutdown();
+        subscription.dispose();
+
+        // every value is delivered exactly once and the buffer never exceed its capacity
+        Assert.assertEquals(PRODUCER_COUNT * VALUE_COUNT, output.size());
+        Assert.assertEquals(0, sink.size());
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.util.CloseableIterator;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@RunWith(JUnit4.class)
+public class DemoJsonArrayStreamTests {
+
+    private final ObjectWriter writer = new ObjectMapper().writerFor(String.class);
+    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    @Test
+    public void verifyBatches() {
+        AtomicBoolean closed = new AtomicBoolean();
+
+        StepVerifier.create(DemoJsonArrayStream.of(() -> cursor(Arrays.asList("a", "b", "c"), closed), writer, bufferFactory, 2)
+                        .map(DemoJsonArrayStreamTests::toString))
+                .expectNext("[\"a\",\"b\"")
+                .expectNext(",\"c\"]")
+                .verifyComplete();
+        Assert.assertTrue(closed.get());
+    }
+
+    @Test
+    public void verifyEmpty() {
+        AtomicBoolean closed = new AtomicBoolean();
+
+        StepVerifier.create(DemoJsonArrayStream.of(() -> cursor(Collections.emptyList(), closed), writer, bufferFactory, 2)
+                        .map(DemoJsonArrayStreamTests::toString))
+                .expectNext("[]")
+                .verifyComplete();
+        Assert.assertTrue(closed.get());
+    }
+
+    @Test
+    public void verifyCursorClosedOnCancel() {
+        AtomicBoolean closed = new AtomicBoolean();
+
+        StepVerifier.create(DemoJsonArrayStream.of(() -> cursor(Arrays.asList("a", "b", "c"), closed), writer, bufferFactory, 1)
+                        .map(DemoJsonArrayStreamTests::toString), 1)
+                .expectNext("[\"a\"")
+                .thenCancel()
+                .verify();
+        Assert.assertTrue(closed.get());
+    }
+
+    private static CloseableIterator<String> cursor(List<String> values, AtomicBoolean closed) {
+        Iterator<String> iterator = values.iterator();
+        return new CloseableIterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+    }
+
+    private static String toString(DataBuffer buffer) {
+        String value = buffer.toString(StandardCharsets.UTF_8);
+        DataBufferUtils.release(buffer);
+        return value;
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@RunWith(JUnit4.class)
+public class DemoKeyedLanesTests {
+
+    @Test
+    public void verifyOrderPerKey() {
+        int KEY_COUNT = 10;
+        int TEST_COUNT = 1000;
+
+        DemoKeyedLanes<int[]> lanes = new DemoKeyedLanes<>("test", 4, value -> "key" + value[0]);
+        Map<Integer, List<Integer>> sequencesByKey = new ConcurrentHashMap<>();
+        Map<Integer, Set<String>> threadsByKey = new ConcurrentHashMap<>();
+
+        try {
+            // each value is a pair of key and sequence number within the key
+            Flux<int[]> source = Flux.range(0, TEST_COUNT).map(i -> new int[] {i % KEY_COUNT, i / KEY_COUNT});
+            Long count = lanes.process(source, value -> {
+                sequencesByKey.computeIfAbsent(value[0], key -> Collections.synchronizedList(new ArrayList<>())).add(value[1]);
+                threadsByKey.computeIfAbsent(value[0], key -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread().getName());
+                return value;
+            }).count().block(Duration.ofSeconds(10));
+
+            Assert.assertEquals(Long.valueOf(TEST_COUNT), count);
+            Assert.assertEquals(KEY_COUNT, sequencesByKey.size());
+            for (int key=0; key<KEY_COUNT; key++) {
+                List<Integer> sequences = sequencesByKey.get(key);
+                Assert.assertEquals(TEST_COUNT / KEY_COUNT, sequences.size());
+                for (int i=0; i<sequences.size(); i++) {
+                    Assert.assertEquals(Integer.valueOf(i), sequences.get(i));
+                }
+                // a key is always processed by the thread of its lane
+                Assert.assertEquals(1, threadsByKey.get(key).size());
+            }
+        } finally {
+            lanes.dispose();
+        }
+    }
+
+    @Test
+    public void verifyLaneOfKey() {
+        DemoKeyedLanes<String> lanes = new DemoKeyedLanes<>("test", 3, value -> value);
+        try {
+            Assert.assertEquals(lanes.laneOf("abc"), lanes.laneOf("abc"));
+            for (String value:new String[] {"a", "b", "c", "d", "e", null}) {
+                int lane = lanes.laneOf(value);
+                Assert.assertTrue(lane >= 0 && lane < lanes.laneCount());
+            }
+        } finally {
+            lanes.dispose();
+        }
+    }
+
+    @Test
+    public void verifyLanesRunOnDaemonThreads() {
+        DemoKeyedLanes<String> lanes = new DemoKeyedLanes<>("test", 2, value -> value);
+        try {
+            Boolean daemon = lanes.process(Flux.just("a"), value -> Thread.currentThread().isDaemon())
+                    .blockFirst(Duration.ofSeconds(10));
+            Assert.assertEquals(Boolean.TRUE, daemon);
+        } finally {
+            lanes.dispose();
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+@RunWith(JUnit4.class)
+public class DemoLoadGeneratorTests {
+
+    @Test
+    public void verifyRate() {
+        DemoLoadGenerator generator = new DemoLoadGenerator("test", "hello", Duration.ofMillis(10), 100, 0, 1);
+
+        // one message per tick at 100 messages per second with 10ms ticks
+        StepVerifier.withVirtualTime(() -> generator.asFlux().take(100))
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNextCount(100)
+                .verifyComplete();
+    }
+
+    @Test
+    public void verifyBurst() {
+        DemoLoadGenerator generator = new DemoLoadGenerator("test", "hello", Duration.ofMillis(10), 100, 0, 10);
+
+        // same average rate, emitted as one burst of 10 messages every 100ms
+        StepVerifier.withVirtualTime(() -> generator.asFlux().take(20))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(95))
+                .thenAwait(Duration.ofMillis(5))
+                .expectNextCount(10)
+                .expectNoEvent(Duration.ofMillis(95))
+                .thenAwait(Duration.ofMillis(5))
+                .expectNextCount(10)
+                .verifyComplete();
+    }
+
+    @Test
+    public void verifyRateChangedAtRuntime() {
+        DemoLoadGenerator generator = new DemoLoadGenerator("test", "hello", Duration.ofMillis(10), 0, 0, 1);
+
+        StepVerifier.withVirtualTime(() -> generator.asFlux().take(50))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofSeconds(1))
+                .then(() -> generator.setRatePerSecond(100))
+                .thenAwait(Duration.ofMillis(500))
+                .expectNextCount(50)
+                .verifyComplete();
+    }
+
+    @Test
+    public void verifyDroppedTicks() {
+        DemoLoadGenerator generator = new DemoLoadGenerator("test", "hello", Duration.ofMillis(10), 100, 0, 1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        generator.bindTo(meterRegistry);
+
+        // the subscriber takes a single message, only a few ticks may be held by the pipeline
+        StepVerifier.withVirtualTime(generator::asFlux, 1)
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+
+        double droppedTicks = meterRegistry.get("demo.generator.ticks.dropped").functionCounter().count();
+        Assert.assertTrue("dropped ticks: " + droppedTicks, droppedTicks >= 90);
+    }
+
+    @Test
+    public void verifyPayloadSize() {
+        DemoLoadGenerator generator = new DemoLoadGenerator("test", "hello", Duration.ofMillis(10), 100, 0, 1);
+        Assert.assertEquals("hello", generator.asFlux().blockFirst(Duration.ofSeconds(5)));
+
+        generator.setPayloadSize(3);
+        Assert.assertEquals("hel", generator.asFlux().blockFirst(Duration.ofSeconds(5)));
+
+        generator.setPayloadSize(8);
+        Assert.assertEquals("helloxxx", generator.asFlux().blockFirst(Duration.ofSeconds(5)));
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.jeffrey.example.demospringwebflux.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityFields;
+import com.jeffrey.example.demospringwebflux.dao.DemoEntityPage;
+import com.jeffrey.example.demospringwebflux.entity.DemoEntity;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class DemoPartialEntityWriterTests {
+
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    public void verifyWriteSelectedFields() throws Exception {
+        DemoPartialEntityWriter writer = new DemoPartialEntityWriter(jsonMapper);
+        DemoEntity demoEntity = new DemoEntity("abc");
+        demoEntity.setId("5e4f8b2a1c9d440000a1b2c3");
+        DemoEntityFields fields = DemoEntityFields.parse("createdOn,id");
+
+        JsonNode node = jsonMapper.readTree((String) writer.write(demoEntity, fields).rawValue());
+        Assert.assertEquals(Arrays.asList(DemoEntity.ID, DemoEntity.CREATED_ON), fieldNames(node));
+        Assert.assertEquals(demoEntity.getId(), node.get(DemoEntity.ID).asText());
+
+        JsonNode page = jsonMapper.readTree((String) writer.write(
+                new DemoEntityPage(Collections.singletonList(demoEntity), "token"), fields).rawValue());
+        Assert.assertEquals(node, page.get(DemoEntityPage.ITEMS).get(0));
+        Assert.assertEquals("token", page.get(DemoEntityPage.CONTINUATION).asText());
+
+        // one writer per set of fields, the application mapper still writes the whole entity
+        Assert.assertSame(writer.writerFor(fields), writer.writerFor(DemoEntityFields.parse("id,createdOn")));
+        Assert.assertEquals(3, jsonMapper.readTree(jsonMapper.writeValueAsString(demoEntity)).size());
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+}